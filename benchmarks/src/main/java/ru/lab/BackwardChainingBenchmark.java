@@ -0,0 +1,50 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Обратный вывод цели последнего слоя синтетической базы.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BackwardChainingBenchmark {
+    @Param({"100", "1000", "10000"})
+    public int rules;
+
+    @Param({"2", "4"})
+    public int fanOut;
+
+    @Param({"5", "20"})
+    public int depth;
+
+    // фактов на слое независимо от числа правил; 0 - по одному на правило слоя
+    @Param({"0", "50"})
+    public int width;
+
+    private KnowledgeBase knowledgeBase;
+    private int[][] inputs;
+    private int next;
+    private String goal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int facts = Workloads.width(width, rules, depth);
+        knowledgeBase = new KnowledgeBase(Workloads.layered(rules, facts, fanOut, depth));
+        inputs = Workloads.inputs(42, 64, facts, fanOut);
+        goal = Workloads.fact(depth - 1, 0);
+    }
+
+    @Benchmark
+    public boolean prove() {
+        Session session = knowledgeBase.newSession();
+        int[] row = inputs[next++ & (inputs.length - 1)];
+        for (int i = 0; i < row.length; i++) {
+            session.setFact(Workloads.input(i), row[i]);
+        }
+        return session.backwardChaining(goal);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Базовая линия: консультация по выбору процессора из демонстрации.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CpuAdvisorBenchmark {
+    @Param({"SCAN", "INDEXED", "RETE"})
+    public String engine;
+
+    @Param({"FIRST_MATCH", "HIGHEST_PRIORITY", "LEX"})
+    public String strategy;
+
+    private KnowledgeBase knowledgeBase;
+    private MatchingEngine matchingEngine;
+    private ConflictResolutionStrategy resolutionStrategy;
+    private final Set<String> goals = Set.of("рекомендация_cpu", "бюджет_подходящий");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        matchingEngine = MatchingEngine.valueOf(engine);
+        resolutionStrategy = ConflictResolutionStrategy.valueOf(strategy);
+        knowledgeBase = Workloads.cpuAdvisor();
+    }
+
+    @Benchmark
+    public Object forward() {
+        Session session = newSession();
+        session.forwardChaining(goals);
+        return session.getFact("рекомендация_cpu");
+    }
+
+    @Benchmark
+    public boolean backward() {
+        return newSession().backwardChaining("рекомендация_cpu");
+    }
+
+    private Session newSession() {
+        Session session = knowledgeBase.newSession();
+        session.setMatchingEngine(matchingEngine);
+        session.setStrategy(resolutionStrategy);
+        session.setFact("тип_задачи", "работа");
+        session.setFact("бюджет_руб", 165000);
+        session.setFact("требуемая_производительность", "высокая");
+        session.setFact("интегрированная_графика_нужна", false);
+        session.setFact("энергоэффективность_важна", false);
+        session.setFact("потребность_многопоточность", true);
+        return session;
+    }
+}
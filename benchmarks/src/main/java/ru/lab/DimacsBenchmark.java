@@ -0,0 +1,62 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Чтение и запись DIMACS на случайной 3-КНФ (около 4.3 дизъюнкта на переменную)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DimacsBenchmark {
+    @Param({"10000", "200000"})
+    public int variables;
+
+    private Path file;
+    private ResolutionMethod.Atoms.Scope atoms;
+    private List<ResolutionMethod.Clause> clauses;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("bench", ".cnf");
+        Random random = new Random(42);
+        int count = variables * 43 / 10;
+        StringBuilder text = new StringBuilder("p cnf " + variables + " " + count + "\n");
+        for (int i = 0; i < count; i++) {
+            for (int k = 0; k < 3; k++) {
+                text.append(random.nextBoolean() ? "-" : "").append(1 + random.nextInt(variables)).append(' ');
+            }
+            text.append("0\n");
+        }
+        Files.writeString(file, text);
+        atoms = new ResolutionMethod.Atoms.Scope();
+        clauses = Dimacs.read(file, atoms);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        atoms.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public List<ResolutionMethod.Clause> read() throws IOException {
+        try (ResolutionMethod.Atoms.Scope scope = new ResolutionMethod.Atoms.Scope()) {
+            return Dimacs.read(file, scope);
+        }
+    }
+
+    @Benchmark
+    public void write() throws IOException {
+        Dimacs.write(clauses, OutputStream.nullOutputStream());
+    }
+}
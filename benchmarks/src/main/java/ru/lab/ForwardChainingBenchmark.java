@@ -0,0 +1,65 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Прямой вывод до насыщения на синтетической слоистой базе.
+// Параметры и результаты - строки и Object: сгенерированный JMH код
+// лежит в другом пакете и не видит package-private типов.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForwardChainingBenchmark {
+    @Param({"SCAN", "INDEXED", "RETE"})
+    public String engine;
+
+    @Param({"100", "1000", "10000"})
+    public int rules;
+
+    @Param({"2", "4"})
+    public int fanOut;
+
+    @Param({"5"})
+    public int depth;
+
+    // фактов на слое независимо от числа правил; 0 - по одному на правило слоя
+    @Param({"0", "50"})
+    public int width;
+
+    @Param({"HIGHEST_PRIORITY"})
+    public String strategy;
+
+    private KnowledgeBase knowledgeBase;
+    private MatchingEngine matchingEngine;
+    private ConflictResolutionStrategy resolutionStrategy;
+    private int[][] inputs;
+    private int next;
+    private final Set<String> goals = Set.of(Workloads.NO_GOAL);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        matchingEngine = MatchingEngine.valueOf(engine);
+        resolutionStrategy = ConflictResolutionStrategy.valueOf(strategy);
+        int facts = Workloads.width(width, rules, depth);
+        knowledgeBase = new KnowledgeBase(Workloads.layered(rules, facts, fanOut, depth));
+        inputs = Workloads.inputs(42, 64, facts, fanOut);
+    }
+
+    @Benchmark
+    public Object saturate() {
+        Session session = knowledgeBase.newSession();
+        session.setMatchingEngine(matchingEngine);
+        session.setStrategy(resolutionStrategy);
+        int[] row = inputs[next++ & (inputs.length - 1)];
+        for (int i = 0; i < row.length; i++) {
+            session.setFact(Workloads.input(i), row[i]);
+        }
+        session.forwardChaining(goals);
+        return session;
+    }
+}
@@ -0,0 +1,47 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Консультация по выбору процессора: интерпретатор Session против
+// вычислителя CpuAdvisorEvaluator, сгенерированного при сборке (HIGHEST_PRIORITY).
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GeneratedEvaluatorBenchmark {
+    private KnowledgeBase knowledgeBase;
+    private final Set<String> goals = Set.of("рекомендация_cpu", "бюджет_подходящий");
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        knowledgeBase = Workloads.cpuAdvisor();
+    }
+
+    @Benchmark
+    public Object interpreted() {
+        Session session = knowledgeBase.newSession();
+        session.setStrategy(ConflictResolutionStrategy.HIGHEST_PRIORITY);
+        return consult(session);
+    }
+
+    @Benchmark
+    public Object generated() {
+        return consult(new CpuAdvisorEvaluator());
+    }
+
+    private Object consult(InferenceSession session) {
+        session.setFact("тип_задачи", "работа");
+        session.setFact("бюджет_руб", 165000);
+        session.setFact("требуемая_производительность", "высокая");
+        session.setFact("интегрированная_графика_нужна", false);
+        session.setFact("энергоэффективность_важна", false);
+        session.setFact("потребность_многопоточность", true);
+        session.forwardChaining(goals);
+        return session.getFact("рекомендация_cpu");
+    }
+}
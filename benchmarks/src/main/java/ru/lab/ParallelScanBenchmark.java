@@ -0,0 +1,53 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Последовательный и параллельный перебор SCAN на больших слоистых базах.
+// Выигрыш зависит от числа ядер: при одном ядре параллельный режим не включается.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParallelScanBenchmark {
+    @Param({"sequential", "parallel"})
+    public String mode;
+
+    @Param({"20000", "100000"})
+    public int rules;
+
+    @Param({"HIGHEST_PRIORITY", "LEX"})
+    public String strategy;
+
+    private KnowledgeBase knowledgeBase;
+    private ConflictResolutionStrategy resolutionStrategy;
+    private int parallelThreshold;
+    private int[][] inputs;
+    private int next;
+    private final Set<String> goals = Set.of(Workloads.NO_GOAL);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        resolutionStrategy = ConflictResolutionStrategy.valueOf(strategy);
+        parallelThreshold = mode.equals("parallel") ? 1 : Integer.MAX_VALUE;
+        knowledgeBase = new KnowledgeBase(Workloads.layered(rules, 4, 5));
+        inputs = Workloads.inputs(42, 64, Workloads.width(rules, 5), 4);
+    }
+
+    @Benchmark
+    public Object saturate() {
+        Session session = knowledgeBase.newSession();
+        session.setStrategy(resolutionStrategy);
+        session.setParallelThreshold(parallelThreshold);
+        int[] row = inputs[next++ & (inputs.length - 1)];
+        for (int i = 0; i < row.length; i++) {
+            session.setFact(Workloads.input(i), row[i]);
+        }
+        session.forwardChaining(goals);
+        return session;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Принцип Дирихле PHP(n+1, n): невыполнимые задачи, трудные для резолюции.
+// Перебор пар (resolution) не справляется уже с PHP(4, 3), поэтому у него своё состояние;
+// givenClause на PHP(6, 5) не укладывается в секунды, CDCL можно проверять на -p holes=8.
+// toCNF запоминается в вершинах формулы: toClauses после первого вызова измеряет
+// обход готовой КНФ, toClausesDefinitional - полное кодирование.
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PigeonholeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Problem {
+        @Param({"3", "4"})
+        public int holes;
+
+        List<ResolutionMethod.Clause> clauses;
+        ResolutionMethod.Formula formula;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            clauses = Workloads.pigeonhole(holes);
+            formula = Workloads.pigeonholeFormula(holes);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pairwise {
+        @Param({"2"})
+        public int pairwiseHoles;
+
+        List<ResolutionMethod.Clause> clauses;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            clauses = Workloads.pigeonhole(pairwiseHoles);
+        }
+    }
+
+    @Benchmark
+    public boolean resolution(Pairwise problem) {
+        return ResolutionMethod.resolution(problem.clauses);
+    }
+
+    @Benchmark
+    public boolean givenClause(Problem problem) {
+        return new GivenClauseProver().refute(List.of(), problem.clauses);
+    }
+
+    @Benchmark
+    public boolean cdcl(Problem problem) {
+        return !new CdclSolver(problem.clauses).solve();
+    }
+
+    @Benchmark
+    public Object toClauses(Problem problem) {
+        return problem.formula.toCNF().toClauses();
+    }
+
+    @Benchmark
+    public Object toClausesDefinitional(Problem problem) {
+        try (ResolutionMethod.Atoms.Scope scope = new ResolutionMethod.Atoms.Scope()) {
+            return problem.formula.toClauses(ResolutionMethod.CnfMode.DEFINITIONAL, scope);
+        }
+    }
+}
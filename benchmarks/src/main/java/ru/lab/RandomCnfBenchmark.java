@@ -0,0 +1,88 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Случайная 3-КНФ: методы проверки и приведение формулы к дизъюнктам.
+// Перебор пар (resolution) без поглощения растёт экспоненциально и уже при
+// 10 переменных работает секунды, поэтому у него своё состояние с меньшими задачами;
+// насыщение givenClause на выполнимых задачах с 50 переменными тоже не укладывается
+// в секунды, CDCL можно проверять на больших (-p variables=200).
+// toCNF запоминается в вершинах формулы, поэтому для toClauses формула
+// перед каждым вызовом строится заново с новым seed.
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RandomCnfBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Problem {
+        @Param({"10", "20"})
+        public int variables;
+
+        // дизъюнктов на переменную; около 4.26 - самые трудные задачи
+        @Param({"3.0", "4.26", "6.0"})
+        public double ratio;
+
+        List<ResolutionMethod.Clause> clauses;
+        ResolutionMethod.Formula formula;
+        private long seed = 42;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            clauses = Workloads.random3Cnf(seed, variables, ratio);
+        }
+
+        @Setup(Level.Invocation)
+        public void nextFormula() {
+            formula = Workloads.random3CnfFormula(++seed, variables, ratio);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Pairwise {
+        @Param({"6", "8"})
+        public int pairwiseVariables;
+
+        @Param({"3.0", "4.26", "6.0"})
+        public double pairwiseRatio;
+
+        List<ResolutionMethod.Clause> clauses;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            clauses = Workloads.random3Cnf(42, pairwiseVariables, pairwiseRatio);
+        }
+    }
+
+    @Benchmark
+    public boolean resolution(Pairwise problem) {
+        return ResolutionMethod.resolution(problem.clauses);
+    }
+
+    @Benchmark
+    public boolean givenClause(Problem problem) {
+        return new GivenClauseProver().refute(List.of(), problem.clauses);
+    }
+
+    @Benchmark
+    public boolean cdcl(Problem problem) {
+        return !new CdclSolver(problem.clauses).solve();
+    }
+
+    @Benchmark
+    public Object toClauses(Problem problem) {
+        return problem.formula.toCNF().toClauses();
+    }
+
+    @Benchmark
+    public Object toClausesDefinitional(Problem problem) {
+        try (ResolutionMethod.Atoms.Scope scope = new ResolutionMethod.Atoms.Scope()) {
+            return problem.formula.toClauses(ResolutionMethod.CnfMode.DEFINITIONAL, scope);
+        }
+    }
+}
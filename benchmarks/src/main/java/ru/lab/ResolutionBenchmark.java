@@ -0,0 +1,50 @@
+package ru.lab;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Метод резолюций и приведение к КНФ.
+// Формулы без вложенных конъюнкций под дизъюнкцией: на них дистрибутивность в toCNF не завершается.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ResolutionBenchmark {
+    @Param({"8", "32"})
+    public int chainLength;
+
+    private List<ResolutionMethod.Clause> chain;
+    private ResolutionMethod.Formula formula;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        chain = Workloads.implicationChain(chainLength);
+        formula = Workloads.implicationChainFormula(chainLength);
+    }
+
+    @Benchmark
+    public boolean refuteChain() {
+        return ResolutionMethod.resolution(chain);
+    }
+
+    // последний дизъюнкт цепочки - отрицание заключения
+    @Benchmark
+    public boolean refuteChainGivenClause() {
+        int last = chain.size() - 1;
+        return new GivenClauseProver(true).refute(chain.subList(0, last), chain.subList(last, last + 1));
+    }
+
+    @Benchmark
+    public boolean refuteChainCdcl() {
+        return !new CdclSolver(chain).solve();
+    }
+
+    @Benchmark
+    public Object toClauses() {
+        return formula.toCNF().toClauses();
+    }
+}
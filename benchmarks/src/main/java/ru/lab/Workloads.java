@@ -0,0 +1,198 @@
+package ru.lab;
+
+import java.util.*;
+
+// Синтетические базы правил и входные данные для бенчмарков.
+final class Workloads {
+    // недостижимая цель: прямой вывод идёт до насыщения
+    static final String NO_GOAL = "цель_недостижима";
+
+    private Workloads() {}
+
+    // Слоистая база: rules правил на depth слоях, по width фактов на слой.
+    // Каждое правило слоя k читает fanOut фактов слоя k-1 и выводит один факт слоя k;
+    // если правил на слое больше, чем фактов, один факт выводят несколько правил.
+    // Нулевой слой читает числовые входные факты in_0 .. in_{width-1}.
+    static List<Rule> layered(int rules, int width, int fanOut, int depth) {
+        int perLayer = Math.max(1, rules / depth);
+        List<Rule> result = new ArrayList<>(perLayer * depth);
+        for (int layer = 0; layer < depth; layer++) {
+            for (int i = 0; i < perLayer; i++) {
+                List<Condition> conditions = new ArrayList<>(fanOut);
+                for (int j = 0; j < fanOut; j++) {
+                    int source = (i + j) % width;
+                    if (layer == 0) {
+                        conditions.add(new Condition(input(source), ">", j * 10));
+                    } else {
+                        conditions.add(new Condition(fact(layer - 1, source), "=", true));
+                    }
+                }
+                List<Action> actions = List.of(new Action(fact(layer, i % width), true));
+                result.add(new Rule("r" + layer + "_" + i, conditions, actions, layer));
+            }
+        }
+        return result;
+    }
+
+    // по одному факту на правило слоя
+    static List<Rule> layered(int rules, int fanOut, int depth) {
+        return layered(rules, width(rules, depth), fanOut, depth);
+    }
+
+    static int width(int rules, int depth) {
+        return Math.max(1, rules / depth);
+    }
+
+    // width == 0 - по одному факту на правило слоя
+    static int width(int width, int rules, int depth) {
+        return width > 0 ? width : width(rules, depth);
+    }
+
+    static String input(int i) {
+        return "in_" + i;
+    }
+
+    static String fact(int layer, int i) {
+        return "f" + layer + "_" + i;
+    }
+
+    // count наборов входных значений; примерно половина условий нулевого слоя истинна
+    static int[][] inputs(long seed, int count, int width, int fanOut) {
+        Random random = new Random(seed);
+        int[][] result = new int[count][width];
+        for (int[] row : result) {
+            for (int i = 0; i < width; i++) {
+                row[i] = random.nextInt(fanOut * 20);
+            }
+        }
+        return result;
+    }
+
+    static KnowledgeBase cpuAdvisor() {
+        ProductionSystem system = new ProductionSystem();
+        ProductionSystemLab.loadCPURules(system);
+        return system.compile();
+    }
+
+    // цепочка импликаций p0, p0 → p1, ..., p(n-1) → pn, ¬pn
+    static List<ResolutionMethod.Clause> implicationChain(int length) {
+        List<ResolutionMethod.Clause> clauses = new ArrayList<>(length + 2);
+        clauses.add(new ResolutionMethod.Clause(new String[]{"p0"}, new String[0]));
+        for (int i = 0; i < length; i++) {
+            clauses.add(new ResolutionMethod.Clause(new String[]{"p" + (i + 1)}, new String[]{"p" + i}));
+        }
+        clauses.add(new ResolutionMethod.Clause(new String[0], new String[]{"p" + length}));
+        return clauses;
+    }
+
+    // (p0 ∧ (p0 → p1) ∧ ... ∧ (p(n-1) → pn)) ∧ ¬pn в виде формулы
+    static ResolutionMethod.Formula implicationChainFormula(int length) {
+        ResolutionMethod.Formula kb = ResolutionMethod.Formula.var("p0");
+        for (int i = 0; i < length; i++) {
+            kb = ResolutionMethod.Formula.and(kb, ResolutionMethod.Formula.impl(
+                    ResolutionMethod.Formula.var("p" + i), ResolutionMethod.Formula.var("p" + (i + 1))));
+        }
+        return ResolutionMethod.Formula.and(kb,
+                ResolutionMethod.Formula.not(ResolutionMethod.Formula.var("p" + length)));
+    }
+
+    // Случайная 3-КНФ: round(ratio * variables) дизъюнктов из трёх разных переменных
+    // v0 .. v(n-1) со случайными знаками; около ratio = 4.26 половина задач невыполнима
+    static List<ResolutionMethod.Clause> random3Cnf(long seed, int variables, double ratio) {
+        List<ResolutionMethod.Clause> clauses = new ArrayList<>();
+        for (int[] clause : random3Sat(seed, variables, ratio)) {
+            List<String> pos = new ArrayList<>(3);
+            List<String> neg = new ArrayList<>(3);
+            for (int literal : clause) {
+                (literal > 0 ? pos : neg).add("v" + (Math.abs(literal) - 1));
+            }
+            clauses.add(new ResolutionMethod.Clause(pos.toArray(new String[0]), neg.toArray(new String[0])));
+        }
+        return clauses;
+    }
+
+    // та же задача в виде формулы - конъюнкции дизъюнкций
+    static ResolutionMethod.Formula random3CnfFormula(long seed, int variables, double ratio) {
+        ResolutionMethod.Formula result = null;
+        for (int[] clause : random3Sat(seed, variables, ratio)) {
+            ResolutionMethod.Formula disjunction = null;
+            for (int literal : clause) {
+                ResolutionMethod.Formula atom = ResolutionMethod.Formula.var("v" + (Math.abs(literal) - 1));
+                ResolutionMethod.Formula term = literal > 0 ? atom : ResolutionMethod.Formula.not(atom);
+                disjunction = disjunction == null ? term : ResolutionMethod.Formula.or(disjunction, term);
+            }
+            result = result == null ? disjunction : ResolutionMethod.Formula.and(result, disjunction);
+        }
+        return result;
+    }
+
+    // дизъюнкты как номера переменных со знаком, с единицы
+    private static int[][] random3Sat(long seed, int variables, double ratio) {
+        Random random = new Random(seed);
+        int[][] clauses = new int[Math.max(1, (int) Math.round(ratio * variables))][];
+        for (int c = 0; c < clauses.length; c++) {
+            int a = random.nextInt(variables);
+            int b;
+            do {
+                b = random.nextInt(variables);
+            } while (b == a);
+            int d;
+            do {
+                d = random.nextInt(variables);
+            } while (d == a || d == b);
+            clauses[c] = new int[]{sign(random, a + 1), sign(random, b + 1), sign(random, d + 1)};
+        }
+        return clauses;
+    }
+
+    private static int sign(Random random, int variable) {
+        return random.nextBoolean() ? variable : -variable;
+    }
+
+    // Принцип Дирихле PHP(n+1, n): holes + 1 голубей по holes клеткам, всегда невыполним.
+    // p_i_j - голубь i в клетке j; каждый голубь где-то сидит, в клетке не больше одного.
+    static List<ResolutionMethod.Clause> pigeonhole(int holes) {
+        List<ResolutionMethod.Clause> clauses = new ArrayList<>();
+        for (int i = 0; i <= holes; i++) {
+            String[] somewhere = new String[holes];
+            for (int j = 0; j < holes; j++) {
+                somewhere[j] = pigeon(i, j);
+            }
+            clauses.add(new ResolutionMethod.Clause(somewhere, new String[0]));
+        }
+        for (int j = 0; j < holes; j++) {
+            for (int i = 0; i <= holes; i++) {
+                for (int k = i + 1; k <= holes; k++) {
+                    clauses.add(new ResolutionMethod.Clause(new String[0], new String[]{pigeon(i, j), pigeon(k, j)}));
+                }
+            }
+        }
+        return clauses;
+    }
+
+    // та же задача в виде формулы; запреты записаны импликациями p_i_j → ¬p_k_j
+    static ResolutionMethod.Formula pigeonholeFormula(int holes) {
+        ResolutionMethod.Formula result = null;
+        for (int i = 0; i <= holes; i++) {
+            ResolutionMethod.Formula somewhere = ResolutionMethod.Formula.var(pigeon(i, 0));
+            for (int j = 1; j < holes; j++) {
+                somewhere = ResolutionMethod.Formula.or(somewhere, ResolutionMethod.Formula.var(pigeon(i, j)));
+            }
+            result = result == null ? somewhere : ResolutionMethod.Formula.and(result, somewhere);
+        }
+        for (int j = 0; j < holes; j++) {
+            for (int i = 0; i <= holes; i++) {
+                for (int k = i + 1; k <= holes; k++) {
+                    result = ResolutionMethod.Formula.and(result, ResolutionMethod.Formula.impl(
+                            ResolutionMethod.Formula.var(pigeon(i, j)),
+                            ResolutionMethod.Formula.not(ResolutionMethod.Formula.var(pigeon(k, j)))));
+                }
+            }
+        }
+        return result;
+    }
+
+    private static String pigeon(int i, int j) {
+        return "p" + i + "_" + j;
+    }
+}
@@ -0,0 +1,149 @@
+package ru.lab;
+
+import java.util.*;
+
+// Агенда итерации прямого вывода: конфликтное множество, упорядоченное стратегией.
+// Выбор очередного правила - O(log n) вместо полного просмотра множества.
+abstract class Agenda {
+
+    abstract void load(List<CompiledRule> conflictSet, WorkingMemory workingMemory);
+
+    abstract CompiledRule poll();
+
+    abstract int size();
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    static Agenda create(ConflictResolutionStrategy strategy, Random random) {
+        return switch (strategy) {
+            case FIRST_MATCH -> new PriorityAgenda(Comparator.comparingInt(e -> e.rule.index), false);
+            case HIGHEST_PRIORITY -> new PriorityAgenda(
+                    Comparator.<PriorityAgenda.Entry>comparingInt(e -> -e.rule.rule.priority)
+                            .thenComparingInt(e -> e.rule.index), false);
+            case MOST_SPECIFIC -> new PriorityAgenda(
+                    Comparator.<PriorityAgenda.Entry>comparingInt(e -> -e.rule.predicates.length)
+                            .thenComparingInt(e -> e.rule.index), false);
+            case SALIENCE_SPECIFICITY -> new PriorityAgenda(
+                    Comparator.<PriorityAgenda.Entry>comparingInt(e -> -e.rule.rule.priority)
+                            .thenComparingInt(e -> -e.rule.predicates.length)
+                            .thenComparingInt(e -> e.rule.index), false);
+            case RECENCY -> new PriorityAgenda(
+                    Comparator.<PriorityAgenda.Entry>comparingLong(e -> -e.newest())
+                            .thenComparingInt(e -> e.rule.index), true);
+            case LEX -> new PriorityAgenda(
+                    PriorityAgenda::compareLex, true);
+            case MEA -> new PriorityAgenda(
+                    Comparator.<PriorityAgenda.Entry>comparingLong(e -> -e.firstConditionTag)
+                            .thenComparing(PriorityAgenda::compareLex), true);
+            case RANDOM -> new RandomAgenda(random);
+        };
+    }
+}
+
+class PriorityAgenda extends Agenda {
+
+    static final class Entry {
+        final CompiledRule rule;
+        long[] tags;            // метки времени фактов условий, по убыванию
+        long firstConditionTag;
+
+        Entry(CompiledRule rule) {
+            this.rule = rule;
+        }
+
+        long newest() {
+            return tags.length == 0 ? 0 : tags[0];
+        }
+    }
+
+    private final PriorityQueue<Entry> queue;
+    private final boolean needsTimeTags;
+
+    PriorityAgenda(Comparator<Entry> order, boolean needsTimeTags) {
+        this.queue = new PriorityQueue<>(order);
+        this.needsTimeTags = needsTimeTags;
+    }
+
+    @Override
+    void load(List<CompiledRule> conflictSet, WorkingMemory workingMemory) {
+        queue.clear();
+        for (CompiledRule rule : conflictSet) {
+            Entry entry = new Entry(rule);
+            if (needsTimeTags) {
+                int n = rule.conditionFacts.length;
+                long[] tags = new long[n];
+                for (int i = 0; i < n; i++) {
+                    tags[i] = workingMemory.timeTag(rule.conditionFacts[i]);
+                }
+                entry.firstConditionTag = n == 0 ? 0 : tags[0];
+                Arrays.sort(tags);
+                for (int i = 0, j = n - 1; i < j; i++, j--) {
+                    long t = tags[i];
+                    tags[i] = tags[j];
+                    tags[j] = t;
+                }
+                entry.tags = tags;
+            }
+            queue.add(entry);
+        }
+    }
+
+    @Override
+    CompiledRule poll() {
+        Entry entry = queue.poll();
+        return entry == null ? null : entry.rule;
+    }
+
+    @Override
+    int size() {
+        return queue.size();
+    }
+
+    // LEX (OPS5): более свежие факты, затем большее число условий
+    static int compareLex(Entry a, Entry b) {
+        int n = Math.min(a.tags.length, b.tags.length);
+        for (int i = 0; i < n; i++) {
+            if (a.tags[i] != b.tags[i]) {
+                return Long.compare(b.tags[i], a.tags[i]);
+            }
+        }
+        if (a.tags.length != b.tags.length) {
+            return Integer.compare(b.tags.length, a.tags.length);
+        }
+        return Integer.compare(a.rule.index, b.rule.index);
+    }
+}
+
+// Равновероятный выбор из оставшихся правил; генератор общий для сессии
+class RandomAgenda extends Agenda {
+    private final Random random;
+    private final List<CompiledRule> rules = new ArrayList<>();
+
+    RandomAgenda(Random random) {
+        this.random = random;
+    }
+
+    @Override
+    void load(List<CompiledRule> conflictSet, WorkingMemory workingMemory) {
+        rules.clear();
+        rules.addAll(conflictSet);
+    }
+
+    @Override
+    CompiledRule poll() {
+        int size = rules.size();
+        if (size == 0) return null;
+        int i = random.nextInt(size);
+        CompiledRule selected = rules.get(i);
+        rules.set(i, rules.get(size - 1));
+        rules.remove(size - 1);
+        return selected;
+    }
+
+    @Override
+    int size() {
+        return rules.size();
+    }
+}
@@ -0,0 +1,547 @@
+package ru.lab;
+
+import ru.lab.ResolutionMethod.Clause;
+
+import java.util.*;
+
+// Проверка выполнимости дизъюнктов с обучением на конфликтах (CDCL), в кодировке
+// литералов Clause (переменная << 1 | знак) по собственной плотной нумерации атомов
+// задачи. Распространение единичных дизъюнктов идёт по двум наблюдаемым литералам:
+// дизъюнкт просматривается только когда ложным стал один из двух его наблюдаемых
+// литералов. На конфликте выводится дизъюнкт по первой точке единственной импликации
+// (1UIP) и выполняется возврат к уровню его второго литерала. Переменная для
+// ветвления - с наибольшей активностью (VSIDS), значение - последнее присвоенное.
+// Перезапуски по последовательности Люби, выученные дизъюнкты с большим числом
+// уровней (LBD) и малой активностью периодически удаляются.
+final class CdclSolver {
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 0;
+    private static final byte UNDEF = 2;
+
+    private static final int RESTART_BASE = 100;
+    private static final double VAR_DECAY = 0.95;
+    private static final double CLAUSE_DECAY = 0.999;
+
+    private static final class Constraint {
+        final int[] literals;
+        final boolean learnt;
+        int lbd;
+        double activity;
+        boolean deleted;
+
+        Constraint(int[] literals, boolean learnt) {
+            this.literals = literals;
+            this.learnt = learnt;
+        }
+    }
+
+    // Дизъюнкты, наблюдающие литерал. Для каждого хранится литерал-страж из того же
+    // дизъюнкта: если он истинен, дизъюнкт выполнен и читать его не нужно.
+    private static final class Watches {
+        Constraint[] items = new Constraint[4];
+        int[] blockers = new int[4];
+        int size;
+
+        void add(Constraint constraint, int blocker) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+                blockers = Arrays.copyOf(blockers, size * 2);
+            }
+            items[size] = constraint;
+            blockers[size++] = blocker;
+        }
+    }
+
+    // переменные решателя нумеруются подряд с нуля: переменная v - атом atoms[v],
+    // так что размер массивов не зависит от числа атомов, созданных до этой задачи
+    private final int[] atoms;
+    private final int variables;
+    private final byte[] assigns;
+    private final boolean[] phase;       // последнее значение переменной
+    private final int[] level;
+    private final Constraint[] reason;
+    private final boolean[] seen;
+    private final double[] activity;
+    private final Watches[] watches;     // литерал -> дизъюнкты, где он наблюдаемый
+    private final int[] trail;
+    private int trailSize;
+    private int propagated;
+    private int[] levelStarts = new int[16];
+    private int decisionLevel;
+
+    private final int[] heap;            // переменные по убыванию активности
+    private final int[] heapIndex;       // -1 - переменной нет в куче
+    private int heapSize;
+
+    private final List<Constraint> learnts = new ArrayList<>();
+    private double variableIncrement = 1;
+    private double clauseIncrement = 1;
+    private double maxLearnts;
+    private boolean conflicting;         // противоречие найдено ещё при загрузке дизъюнктов
+
+    private long decisions;
+    private long propagations;
+    private long conflicts;
+    private long restarts;
+    private long removed;
+
+    CdclSolver(Collection<Clause> clauses) {
+        atoms = atoms(clauses);
+        variables = atoms.length;
+        assigns = new byte[variables];
+        Arrays.fill(assigns, UNDEF);
+        phase = new boolean[variables];
+        level = new int[variables];
+        reason = new Constraint[variables];
+        seen = new boolean[variables];
+        activity = new double[variables];
+        watches = new Watches[variables * 2];
+        for (int i = 0; i < watches.length; i++) {
+            watches[i] = new Watches();
+        }
+        trail = new int[variables];
+        heap = new int[variables];
+        heapIndex = new int[variables];
+        Arrays.fill(heapIndex, -1);
+
+        int original = 0;
+        for (Clause clause : clauses) {
+            // номера атомов упорядочены, поэтому локальные литералы остаются отсортированными
+            int[] literals = new int[clause.literals.length];
+            for (int k = 0; k < literals.length; k++) {
+                int literal = clause.literals[k];
+                int variable = Arrays.binarySearch(atoms, Clause.atom(literal));
+                literals[k] = variable << 1 | (literal & 1);
+                if (heapIndex[variable] < 0) {
+                    heapInsert(variable);
+                }
+            }
+            if (!conflicting && !clause.isTautology()) {
+                addClause(literals);
+                original++;
+            }
+        }
+        maxLearnts = Math.max(original / 3.0, 1000);
+    }
+
+    // атомы дизъюнктов по возрастанию, без повторов
+    private static int[] atoms(Collection<Clause> clauses) {
+        int size = 0;
+        for (Clause clause : clauses) {
+            size += clause.literals.length;
+        }
+        int[] atoms = new int[size];
+        size = 0;
+        for (Clause clause : clauses) {
+            for (int literal : clause.literals) {
+                atoms[size++] = Clause.atom(literal);
+            }
+        }
+        Arrays.sort(atoms);
+        int distinct = 0;
+        for (int k = 0; k < size; k++) {
+            if (distinct == 0 || atoms[distinct - 1] != atoms[k]) {
+                atoms[distinct++] = atoms[k];
+            }
+        }
+        return Arrays.copyOf(atoms, distinct);
+    }
+
+    private void addClause(int[] literals) {
+        if (literals.length == 0) {
+            conflicting = true;
+        } else if (literals.length == 1) {
+            byte value = value(literals[0]);
+            if (value == FALSE) {
+                conflicting = true;
+            } else if (value == UNDEF) {
+                assign(literals[0], null);
+            }
+        } else {
+            attach(new Constraint(literals, false));
+        }
+    }
+
+    private void attach(Constraint constraint) {
+        watches[constraint.literals[0]].add(constraint, constraint.literals[1]);
+        watches[constraint.literals[1]].add(constraint, constraint.literals[0]);
+    }
+
+    private byte value(int literal) {
+        byte value = assigns[literal >>> 1];
+        return value == UNDEF ? UNDEF : (byte) (value ^ (literal & 1));
+    }
+
+    private void assign(int literal, Constraint from) {
+        int variable = literal >>> 1;
+        assigns[variable] = (literal & 1) == 0 ? TRUE : FALSE;
+        level[variable] = decisionLevel;
+        reason[variable] = from;
+        trail[trailSize++] = literal;
+    }
+
+    // true - дизъюнкты выполнимы
+    boolean solve() {
+        if (conflicting || propagate() != null) {
+            return false;
+        }
+        int restartIndex = 0;
+        long restartLimit = RESTART_BASE * luby(restartIndex);
+        long conflictsSinceRestart = 0;
+        while (true) {
+            Constraint conflict = propagate();
+            if (conflict != null) {
+                conflicts++;
+                conflictsSinceRestart++;
+                if (decisionLevel == 0) {
+                    return false;
+                }
+                learn(conflict);
+                variableIncrement /= VAR_DECAY;
+                clauseIncrement /= CLAUSE_DECAY;
+            } else {
+                if (conflictsSinceRestart >= restartLimit) {
+                    restarts++;
+                    cancelUntil(0);
+                    restartLimit = RESTART_BASE * luby(++restartIndex);
+                    conflictsSinceRestart = 0;
+                }
+                if (learnts.size() >= maxLearnts + trailSize) {
+                    reduceLearnts();
+                }
+                int variable = nextVariable();
+                if (variable < 0) {
+                    return true;
+                }
+                decisions++;
+                newLevel();
+                assign(variable << 1 | (phase[variable] ? 0 : 1), null);
+            }
+        }
+    }
+
+    // значение атома в найденной модели; атомы вне дизъюнктов ложны
+    boolean modelValue(int atom) {
+        int variable = Arrays.binarySearch(atoms, atom);
+        return variable >= 0 && assigns[variable] == TRUE;
+    }
+
+    private void newLevel() {
+        if (decisionLevel == levelStarts.length) {
+            levelStarts = Arrays.copyOf(levelStarts, decisionLevel * 2);
+        }
+        levelStarts[decisionLevel++] = trailSize;
+    }
+
+    // конфликтующий дизъюнкт или null
+    private Constraint propagate() {
+        while (propagated < trailSize) {
+            int falseLiteral = trail[propagated++] ^ 1;
+            propagations++;
+            Watches list = watches[falseLiteral];
+            Constraint[] items = list.items;
+            int[] blockers = list.blockers;
+            int size = list.size;
+            int i = 0;
+            int j = 0;
+            while (i < size) {
+                int blocker = blockers[i];
+                if (value(blocker) == TRUE) {
+                    items[j] = items[i];
+                    blockers[j++] = blockers[i++];
+                    continue;
+                }
+                Constraint constraint = items[i++];
+                int[] literals = constraint.literals;
+                if (literals[0] == falseLiteral) {
+                    literals[0] = literals[1];
+                    literals[1] = falseLiteral;
+                }
+                int first = literals[0];
+                if (first != blocker && value(first) == TRUE) {
+                    items[j] = constraint;
+                    blockers[j++] = first;
+                    continue;
+                }
+                boolean moved = false;
+                for (int k = 2; k < literals.length; k++) {
+                    if (value(literals[k]) != FALSE) {
+                        literals[1] = literals[k];
+                        literals[k] = falseLiteral;
+                        watches[literals[1]].add(constraint, first);
+                        moved = true;
+                        break;
+                    }
+                }
+                if (moved) continue;
+
+                items[j] = constraint;
+                blockers[j++] = first;
+                if (value(first) == FALSE) {
+                    while (i < size) {
+                        items[j] = items[i];
+                        blockers[j++] = blockers[i++];
+                    }
+                    Arrays.fill(items, j, size, null);
+                    list.size = j;
+                    propagated = trailSize;
+                    return constraint;
+                }
+                assign(first, constraint);
+            }
+            Arrays.fill(items, j, size, null);
+            list.size = j;
+        }
+        return null;
+    }
+
+    private void learn(Constraint conflict) {
+        int[] learnt = analyze(conflict);
+        int backtrackLevel = 0;
+        if (learnt.length > 1) {
+            // второй наблюдаемый литерал - с наибольшего уровня после текущего
+            int max = 1;
+            for (int k = 2; k < learnt.length; k++) {
+                if (level[learnt[k] >>> 1] > level[learnt[max] >>> 1]) max = k;
+            }
+            int swap = learnt[1];
+            learnt[1] = learnt[max];
+            learnt[max] = swap;
+            backtrackLevel = level[learnt[1] >>> 1];
+        }
+        cancelUntil(backtrackLevel);
+        if (learnt.length == 1) {
+            assign(learnt[0], null);
+        } else {
+            Constraint constraint = new Constraint(learnt, true);
+            constraint.lbd = lbd(learnt);
+            bumpClause(constraint);
+            attach(constraint);
+            learnts.add(constraint);
+            assign(learnt[0], constraint);
+        }
+    }
+
+    // дизъюнкт 1UIP; learnt[0] - отрицание единственной точки импликации
+    private int[] analyze(Constraint conflict) {
+        int[] buffer = new int[16];
+        int size = 1;
+        int paths = 0;
+        int literal = -1;
+        int index = trailSize - 1;
+        Constraint constraint = conflict;
+        do {
+            if (constraint.learnt) {
+                bumpClause(constraint);
+            }
+            int[] literals = constraint.literals;
+            for (int k = literal < 0 ? 0 : 1; k < literals.length; k++) {
+                int q = literals[k];
+                int variable = q >>> 1;
+                if (!seen[variable] && level[variable] > 0) {
+                    bumpVariable(variable);
+                    seen[variable] = true;
+                    if (level[variable] >= decisionLevel) {
+                        paths++;
+                    } else {
+                        if (size == buffer.length) buffer = Arrays.copyOf(buffer, size * 2);
+                        buffer[size++] = q;
+                    }
+                }
+            }
+            while (!seen[trail[index] >>> 1]) index--;
+            literal = trail[index--];
+            constraint = reason[literal >>> 1];
+            seen[literal >>> 1] = false;
+            paths--;
+        } while (paths > 0);
+        buffer[0] = literal ^ 1;
+
+        // литерал лишний, если его причина целиком состоит из литералов дизъюнкта и уровня 0
+        int[] learnt = new int[size];
+        learnt[0] = buffer[0];
+        int kept = 1;
+        for (int k = 1; k < size; k++) {
+            if (!redundant(buffer[k])) {
+                learnt[kept++] = buffer[k];
+            }
+        }
+        for (int k = 1; k < size; k++) {
+            seen[buffer[k] >>> 1] = false;
+        }
+        return kept == size ? learnt : Arrays.copyOf(learnt, kept);
+    }
+
+    private boolean redundant(int literal) {
+        Constraint from = reason[literal >>> 1];
+        if (from == null) return false;
+        for (int k = 1; k < from.literals.length; k++) {
+            int variable = from.literals[k] >>> 1;
+            if (!seen[variable] && level[variable] > 0) return false;
+        }
+        return true;
+    }
+
+    private int lbd(int[] literals) {
+        Set<Integer> levels = new HashSet<>();
+        for (int literal : literals) {
+            levels.add(level[literal >>> 1]);
+        }
+        return levels.size();
+    }
+
+    private void cancelUntil(int target) {
+        if (decisionLevel <= target) return;
+        int start = levelStarts[target];
+        for (int i = trailSize - 1; i >= start; i--) {
+            int variable = trail[i] >>> 1;
+            phase[variable] = assigns[variable] == TRUE;
+            assigns[variable] = UNDEF;
+            reason[variable] = null;
+            if (heapIndex[variable] < 0) {
+                heapInsert(variable);
+            }
+        }
+        trailSize = start;
+        propagated = start;
+        decisionLevel = target;
+    }
+
+    private int nextVariable() {
+        while (heapSize > 0) {
+            int variable = heapRemoveMax();
+            if (assigns[variable] == UNDEF) {
+                return variable;
+            }
+        }
+        return -1;
+    }
+
+    // Удаление половины выученных дизъюнктов: сначала с большим LBD, затем с малой активностью.
+    // Двоичные, с LBD <= 2 и служащие причиной текущего присваивания сохраняются.
+    private void reduceLearnts() {
+        learnts.sort(Comparator.<Constraint>comparingInt(c -> -c.lbd).thenComparingDouble(c -> c.activity));
+        int target = learnts.size() / 2;
+        List<Constraint> kept = new ArrayList<>(learnts.size() - target);
+        int dropped = 0;
+        for (Constraint constraint : learnts) {
+            if (dropped < target && constraint.literals.length > 2 && constraint.lbd > 2 && !locked(constraint)) {
+                constraint.deleted = true;
+                dropped++;
+            } else {
+                kept.add(constraint);
+            }
+        }
+        learnts.clear();
+        learnts.addAll(kept);
+        removed += dropped;
+        for (Watches list : watches) {
+            int j = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (!list.items[i].deleted) {
+                    list.items[j] = list.items[i];
+                    list.blockers[j++] = list.blockers[i];
+                }
+            }
+            Arrays.fill(list.items, j, list.size, null);
+            list.size = j;
+        }
+        maxLearnts *= 1.1;
+    }
+
+    private boolean locked(Constraint constraint) {
+        int first = constraint.literals[0];
+        return reason[first >>> 1] == constraint && value(first) == TRUE;
+    }
+
+    private void bumpVariable(int variable) {
+        if ((activity[variable] += variableIncrement) > 1e100) {
+            for (int v = 0; v < variables; v++) {
+                activity[v] *= 1e-100;
+            }
+            variableIncrement *= 1e-100;
+        }
+        if (heapIndex[variable] >= 0) {
+            siftUp(heapIndex[variable]);
+        }
+    }
+
+    private void bumpClause(Constraint constraint) {
+        if ((constraint.activity += clauseIncrement) > 1e20) {
+            for (Constraint learnt : learnts) {
+                learnt.activity *= 1e-20;
+            }
+            clauseIncrement *= 1e-20;
+        }
+    }
+
+    private void heapInsert(int variable) {
+        heap[heapSize] = variable;
+        heapIndex[variable] = heapSize;
+        siftUp(heapSize++);
+    }
+
+    private int heapRemoveMax() {
+        int top = heap[0];
+        heapIndex[top] = -1;
+        int last = heap[--heapSize];
+        if (heapSize > 0) {
+            heap[0] = last;
+            heapIndex[last] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(int i) {
+        int variable = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (activity[heap[parent]] >= activity[variable]) break;
+            heap[i] = heap[parent];
+            heapIndex[heap[i]] = i;
+            i = parent;
+        }
+        heap[i] = variable;
+        heapIndex[variable] = i;
+    }
+
+    private void siftDown(int i) {
+        int variable = heap[i];
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && activity[heap[child + 1]] > activity[heap[child]]) child++;
+            if (activity[heap[child]] <= activity[variable]) break;
+            heap[i] = heap[child];
+            heapIndex[heap[i]] = i;
+            i = child;
+        }
+        heap[i] = variable;
+        heapIndex[variable] = i;
+    }
+
+    // 1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...
+    private static long luby(int index) {
+        int size = 1;
+        int sequence = 0;
+        while (size < index + 1) {
+            sequence++;
+            size = 2 * size + 1;
+        }
+        int x = index;
+        while (size - 1 != x) {
+            size = (size - 1) >> 1;
+            sequence--;
+            x = x % size;
+        }
+        return 1L << sequence;
+    }
+
+    @Override
+    public String toString() {
+        return "решений: " + decisions + ", распространений: " + propagations + ", конфликтов: " + conflicts
+                + ", перезапусков: " + restarts + ", выучено: " + (learnts.size() + removed)
+                + ", удалено: " + removed;
+    }
+}
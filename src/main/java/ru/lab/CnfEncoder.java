@@ -0,0 +1,260 @@
+package ru.lab;
+
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+import ru.lab.ResolutionMethod.Formula;
+import ru.lab.ResolutionMethod.Kind;
+
+import java.util.*;
+
+// Перевод формулы в дизъюнкты через переменные-определения (преобразование Цейтина).
+// Каждая составная подформула получает новый атом d и дизъюнкты, связывающие d с её
+// частями, поэтому размер результата линеен по размеру формулы, а результат
+// равновыполним исходной формуле. С учётом полярности (Плейстед - Гринбаум)
+// для подформулы, встречающейся только положительно, выписывается лишь d → φ,
+// только отрицательно - лишь φ → d. Вложенные дизъюнкции и конъюнкции одного
+// направления сливаются в одно определение, конъюнкции верхнего уровня дают
+// отдельные дизъюнкты без новых атомов. Одна и та же вершина определяется один раз.
+final class CnfEncoder {
+    private static final int POSITIVE = 1;
+    private static final int NEGATIVE = 2;
+    private static final int BOTH = POSITIVE | NEGATIVE;
+
+    // подформула -> {литерал определения, полярности, для которых выписаны дизъюнкты}
+    private final Map<Formula, int[]> definitions = new IdentityHashMap<>();
+    // переменная -> атом, чтобы не обращаться к общей таблице на каждое вхождение
+    private final Map<String, Integer> atoms = new HashMap<>();
+    private final List<Clause> clauses = new ArrayList<>();
+    private final Atoms.Scope scope;
+
+    private CnfEncoder(Atoms.Scope scope) {
+        this.scope = scope;
+    }
+
+    // атомы определений принадлежат scope: дизъюнкты действительны, пока он открыт
+    static List<Clause> encode(Formula formula, Atoms.Scope scope) {
+        CnfEncoder encoder = new CnfEncoder(scope);
+        encoder.assertFormula(formula);
+        return encoder.clauses;
+    }
+
+    // Оценка числа дизъюнктов при раскрытии дистрибутивностью против числа
+    // связок - примерного числа дизъюнктов с определениями
+    static boolean prefersDistributive(Formula formula) {
+        Map<Formula, long[]> memo = new IdentityHashMap<>();
+        return distributiveCount(formula, true, memo) <= Math.max(1, connectives(formula, new IdentityHashMap<>()));
+    }
+
+    private static final long LIMIT = 1L << 40;
+
+    // число дизъюнктов КНФ формулы (sign) или её отрицания (!sign), с насыщением
+    private static long distributiveCount(Formula f, boolean sign, Map<Formula, long[]> memo) {
+        long[] counts = memo.get(f);
+        if (counts == null) {
+            counts = new long[]{-1, -1};
+            memo.put(f, counts);
+        }
+        int slot = sign ? 0 : 1;
+        if (counts[slot] >= 0) return counts[slot];
+        long count = switch (f.kind) {
+            case VAR -> 1;
+            case NOT -> distributiveCount(f.left, !sign, memo);
+            case AND -> sign
+                    ? sum(distributiveCount(f.left, true, memo), distributiveCount(f.right, true, memo))
+                    : product(distributiveCount(f.left, false, memo), distributiveCount(f.right, false, memo));
+            case OR -> sign
+                    ? product(distributiveCount(f.left, true, memo), distributiveCount(f.right, true, memo))
+                    : sum(distributiveCount(f.left, false, memo), distributiveCount(f.right, false, memo));
+            case IMPL -> sign
+                    ? product(distributiveCount(f.left, false, memo), distributiveCount(f.right, true, memo))
+                    : sum(distributiveCount(f.left, true, memo), distributiveCount(f.right, false, memo));
+            case EQUIV -> {
+                long leftTrue = distributiveCount(f.left, true, memo);
+                long leftFalse = distributiveCount(f.left, false, memo);
+                long rightTrue = distributiveCount(f.right, true, memo);
+                long rightFalse = distributiveCount(f.right, false, memo);
+                yield sign
+                        ? sum(product(leftFalse, rightTrue), product(rightFalse, leftTrue))
+                        : product(sum(leftTrue, rightFalse), sum(leftFalse, rightTrue));
+            }
+        };
+        counts[slot] = count;
+        return count;
+    }
+
+    private static long sum(long a, long b) {
+        return Math.min(LIMIT, a + b);
+    }
+
+    private static long product(long a, long b) {
+        return a >= LIMIT / Math.max(1, b) ? LIMIT : a * b;
+    }
+
+    private static long connectives(Formula f, Map<Formula, Boolean> visited) {
+        if (f == null || f.kind == Kind.VAR || visited.put(f, Boolean.TRUE) != null) return 0;
+        return (f.kind == Kind.NOT ? 0 : 1) + connectives(f.left, visited) + connectives(f.right, visited);
+    }
+
+    // формула верхнего уровня (sign) или её отрицание (!sign) должна быть истинна
+    private void assertFormula(Formula formula) {
+        Deque<Formula> formulas = new ArrayDeque<>();
+        Deque<Boolean> signs = new ArrayDeque<>();
+        formulas.push(formula);
+        signs.push(true);
+        while (!formulas.isEmpty()) {
+            Formula f = formulas.pop();
+            boolean sign = signs.pop();
+            if (f.kind == Kind.NOT) {
+                formulas.push(f.left);
+                signs.push(!sign);
+            } else if (sign && f.kind == Kind.AND) {
+                formulas.push(f.right);
+                signs.push(true);
+                formulas.push(f.left);
+                signs.push(true);
+            } else if (!sign && f.kind == Kind.OR) {
+                formulas.push(f.right);
+                signs.push(false);
+                formulas.push(f.left);
+                signs.push(false);
+            } else if (!sign && f.kind == Kind.IMPL) {
+                formulas.push(f.right);
+                signs.push(false);
+                formulas.push(f.left);
+                signs.push(true);
+            } else {
+                IntList literals = new IntList();
+                disjuncts(f, sign, POSITIVE, literals);
+                addClause(literals);
+            }
+        }
+    }
+
+    // Литералы, дизъюнкция которых равна f (sign) или ¬f (!sign); polarity - полярность этой дизъюнкции
+    private void disjuncts(Formula formula, boolean sign, int polarity, IntList out) {
+        Deque<Formula> formulas = new ArrayDeque<>();
+        Deque<Boolean> signs = new ArrayDeque<>();
+        formulas.push(formula);
+        signs.push(sign);
+        while (!formulas.isEmpty()) {
+            Formula f = formulas.pop();
+            boolean s = signs.pop();
+            if (f.kind == Kind.NOT) {
+                formulas.push(f.left);
+                signs.push(!s);
+            } else if (s && f.kind == Kind.OR) {
+                formulas.push(f.right);
+                signs.push(true);
+                formulas.push(f.left);
+                signs.push(true);
+            } else if (s && f.kind == Kind.IMPL) {
+                formulas.push(f.right);
+                signs.push(true);
+                formulas.push(f.left);
+                signs.push(false);
+            } else if (!s && f.kind == Kind.AND) {
+                formulas.push(f.right);
+                signs.push(false);
+                formulas.push(f.left);
+                signs.push(false);
+            } else if (s) {
+                out.add(define(f, polarity));
+            } else {
+                out.add(define(f, flip(polarity)) ^ 1);
+            }
+        }
+    }
+
+    // литерал, равный f в направлениях polarity
+    private int define(Formula f, int polarity) {
+        if (f.kind == Kind.VAR) {
+            return Clause.literal(atoms.computeIfAbsent(f.var, Atoms::intern), false);
+        }
+        if (f.kind == Kind.NOT) {
+            return define(f.left, flip(polarity)) ^ 1;
+        }
+        int[] definition = definitions.get(f);
+        if (definition == null) {
+            definition = new int[]{Clause.literal(scope.fresh(), false), 0};
+            definitions.put(f, definition);
+        }
+        int d = definition[0];
+        int needed = polarity & ~definition[1];
+        if (needed == 0) {
+            return d;
+        }
+        definition[1] |= needed;
+
+        switch (f.kind) {
+            case OR, IMPL -> {
+                // d ↔ (l1 ∨ ... ∨ ln)
+                IntList literals = new IntList();
+                disjuncts(f, true, needed, literals);
+                defineDisjunction(d, literals, needed);
+            }
+            case AND -> {
+                // ¬d ↔ (¬c1 ∨ ... ∨ ¬cn)
+                IntList literals = new IntList();
+                disjuncts(f, false, flip(needed), literals);
+                defineDisjunction(d ^ 1, literals, flip(needed));
+            }
+            case EQUIV -> {
+                int a = define(f.left, BOTH);
+                int b = define(f.right, BOTH);
+                if ((needed & POSITIVE) != 0) {
+                    addClause(d ^ 1, a ^ 1, b);
+                    addClause(d ^ 1, a, b ^ 1);
+                }
+                if ((needed & NEGATIVE) != 0) {
+                    addClause(d, a, b);
+                    addClause(d, a ^ 1, b ^ 1);
+                }
+            }
+        }
+        return d;
+    }
+
+    // d → ∨ literals при POSITIVE, ∨ literals → d при NEGATIVE
+    private void defineDisjunction(int d, IntList literals, int polarity) {
+        if ((polarity & POSITIVE) != 0) {
+            IntList clause = new IntList();
+            clause.add(d ^ 1);
+            for (int i = 0; i < literals.size; i++) {
+                clause.add(literals.items[i]);
+            }
+            addClause(clause);
+        }
+        if ((polarity & NEGATIVE) != 0) {
+            for (int i = 0; i < literals.size; i++) {
+                addClause(d, literals.items[i] ^ 1);
+            }
+        }
+    }
+
+    private static int flip(int polarity) {
+        return ((polarity & POSITIVE) << 1) | ((polarity & NEGATIVE) >> 1);
+    }
+
+    private void addClause(int... literals) {
+        Clause clause = Clause.of(literals);
+        if (!clause.isTautology()) {
+            clauses.add(clause);
+        }
+    }
+
+    private void addClause(IntList literals) {
+        addClause(Arrays.copyOf(literals.items, literals.size));
+    }
+
+    private static final class IntList {
+        int[] items = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package ru.lab;
+
+// Правило с условиями и действиями, переведёнными на номера слотов рабочей памяти
+final class CompiledRule {
+    final Rule rule;
+    final int index;
+    final int[] conditionFacts;
+    final ConditionPredicate[] predicates;
+    final int[] actionFacts;
+    final Object[] actionValues;
+
+    CompiledRule(Rule rule, int index, FactTable facts) {
+        this.rule = rule;
+        this.index = index;
+
+        int n = rule.conditions.size();
+        conditionFacts = new int[n];
+        predicates = new ConditionPredicate[n];
+        for (int i = 0; i < n; i++) {
+            Condition cond = rule.conditions.get(i);
+            conditionFacts[i] = facts.intern(cond.factName);
+            predicates[i] = cond.predicate();
+        }
+
+        int m = rule.actions.size();
+        actionFacts = new int[m];
+        actionValues = new Object[m];
+        for (int i = 0; i < m; i++) {
+            Action action = rule.actions.get(i);
+            actionFacts[i] = facts.intern(action.factName);
+            actionValues[i] = action.value;
+        }
+    }
+
+    CompiledRule(Rule rule, int index, int[] conditionFacts, int[] actionFacts) {
+        this.rule = rule;
+        this.index = index;
+        this.conditionFacts = conditionFacts;
+        this.actionFacts = actionFacts;
+        this.predicates = new ConditionPredicate[conditionFacts.length];
+        for (int i = 0; i < predicates.length; i++) {
+            predicates[i] = rule.conditions.get(i).predicate();
+        }
+        this.actionValues = new Object[actionFacts.length];
+        for (int i = 0; i < actionValues.length; i++) {
+            actionValues[i] = rule.actions.get(i).value;
+        }
+    }
+
+    boolean isApplicable(WorkingMemory workingMemory) {
+        for (int i = 0; i < predicates.length; i++) {
+            if (!workingMemory.test(conditionFacts[i], predicates[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
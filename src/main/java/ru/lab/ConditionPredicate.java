@@ -0,0 +1,335 @@
+package ru.lab;
+
+import java.util.*;
+import java.util.regex.Pattern;
+
+enum Operator {
+    EQUALS("="),
+    NOT_EQUALS("!="),
+    GREATER(">"),
+    LESS("<"),
+    GREATER_OR_EQUAL(">="),
+    LESS_OR_EQUAL("<="),
+    IN("in"),
+    CONTAINS("contains"),
+    STARTS_WITH("startsWith"),
+    ENDS_WITH("endsWith"),
+    MATCHES("matches"),
+    EXISTS("exists"),
+    NOT_EXISTS("not_exists");
+
+    final String symbol;
+
+    Operator(String symbol) {
+        this.symbol = symbol;
+    }
+
+    static Operator fromSymbol(String symbol) {
+        for (Operator op : values()) {
+            if (op.symbol.equals(symbol)) {
+                return op;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестный оператор условия: " + symbol);
+    }
+}
+
+// Предикат условия, подготовленный один раз при добавлении правила.
+// Получает только ненулевое значение факта; типизированные методы вызываются
+// рабочей памятью для примитивных слотов и по умолчанию упаковывают значение.
+abstract class ConditionPredicate {
+
+    abstract boolean test(Object actual);
+
+    boolean testInt(int actual) {
+        return test(actual);
+    }
+
+    boolean testLong(long actual) {
+        return test(actual);
+    }
+
+    boolean testDouble(double actual) {
+        return test(actual);
+    }
+
+    boolean testBoolean(boolean actual) {
+        return test(actual);
+    }
+
+    static ConditionPredicate compile(Operator op, Object expected) {
+        return switch (op) {
+            case EQUALS -> new EqualityPredicate(expected, false);
+            case NOT_EQUALS -> new EqualityPredicate(expected, true);
+            case GREATER, LESS, GREATER_OR_EQUAL, LESS_OR_EQUAL -> numeric(op, expected);
+            case IN -> in(expected);
+            case CONTAINS -> new ContainsPredicate(expected);
+            case STARTS_WITH -> expected instanceof String s ? new StartsWithPredicate(s) : ConstantPredicate.FALSE;
+            case ENDS_WITH -> expected instanceof String s ? new EndsWithPredicate(s) : ConstantPredicate.FALSE;
+            case MATCHES -> expected instanceof String s ? new MatchesPredicate(Pattern.compile(s)) : ConstantPredicate.FALSE;
+            case EXISTS -> ConstantPredicate.TRUE;
+            case NOT_EXISTS -> ConstantPredicate.FALSE;
+        };
+    }
+
+    private static ConditionPredicate numeric(Operator op, Object expected) {
+        // нечисловой порог сравнивается как равный любому значению
+        if (!(expected instanceof Number number)) {
+            return (op == Operator.GREATER_OR_EQUAL || op == Operator.LESS_OR_EQUAL)
+                    ? ConstantPredicate.TRUE : ConstantPredicate.FALSE;
+        }
+        double threshold = number.doubleValue();
+        return switch (op) {
+            case GREATER -> new GreaterPredicate(threshold);
+            case LESS -> new LessPredicate(threshold);
+            case GREATER_OR_EQUAL -> new GreaterOrEqualPredicate(threshold);
+            default -> new LessOrEqualPredicate(threshold);
+        };
+    }
+
+    private static ConditionPredicate in(Object expected) {
+        if (expected instanceof Collection<?> collection) {
+            return new InPredicate(new HashSet<>(collection));
+        }
+        if (expected instanceof Object[] array) {
+            return new InPredicate(new HashSet<>(Arrays.asList(array)));
+        }
+        return ConstantPredicate.FALSE;
+    }
+}
+
+final class ConstantPredicate extends ConditionPredicate {
+    static final ConstantPredicate TRUE = new ConstantPredicate(true);
+    static final ConstantPredicate FALSE = new ConstantPredicate(false);
+
+    private final boolean result;
+
+    private ConstantPredicate(boolean result) {
+        this.result = result;
+    }
+
+    @Override
+    boolean test(Object actual) {
+        return result;
+    }
+
+    @Override
+    boolean testInt(int actual) {
+        return result;
+    }
+
+    @Override
+    boolean testLong(long actual) {
+        return result;
+    }
+
+    @Override
+    boolean testDouble(double actual) {
+        return result;
+    }
+
+    @Override
+    boolean testBoolean(boolean actual) {
+        return result;
+    }
+}
+
+// Сравнение через equals; для примитивных слотов сравниваются тип и биты значения
+final class EqualityPredicate extends ConditionPredicate {
+    private final Object expected;
+    private final boolean negate;
+    private final byte kind;
+    private final long bits;
+
+    EqualityPredicate(Object expected, boolean negate) {
+        this.expected = expected;
+        this.negate = negate;
+        this.kind = WorkingMemory.kindOf(expected);
+        this.bits = switch (kind) {
+            case WorkingMemory.INT -> (Integer) expected;
+            case WorkingMemory.LONG -> (Long) expected;
+            case WorkingMemory.DOUBLE -> Double.doubleToLongBits((Double) expected);
+            case WorkingMemory.BOOLEAN -> (Boolean) expected ? 1 : 0;
+            default -> 0;
+        };
+    }
+
+    @Override
+    boolean test(Object actual) {
+        return actual.equals(expected) != negate;
+    }
+
+    @Override
+    boolean testInt(int actual) {
+        return (kind == WorkingMemory.INT && actual == bits) != negate;
+    }
+
+    @Override
+    boolean testLong(long actual) {
+        return (kind == WorkingMemory.LONG && actual == bits) != negate;
+    }
+
+    @Override
+    boolean testDouble(double actual) {
+        return (kind == WorkingMemory.DOUBLE && Double.doubleToLongBits(actual) == bits) != negate;
+    }
+
+    @Override
+    boolean testBoolean(boolean actual) {
+        return (kind == WorkingMemory.BOOLEAN && (actual ? 1 : 0) == bits) != negate;
+    }
+}
+
+// Числовые сравнения: нечисловое значение факта считается равным порогу
+abstract class NumericPredicate extends ConditionPredicate {
+    final double threshold;
+
+    NumericPredicate(double threshold) {
+        this.threshold = threshold;
+    }
+
+    abstract boolean compare(int cmp);
+
+    @Override
+    final boolean test(Object actual) {
+        if (actual instanceof Number n) {
+            return compare(Double.compare(n.doubleValue(), threshold));
+        }
+        return compare(0);
+    }
+
+    @Override
+    final boolean testInt(int actual) {
+        return compare(Double.compare(actual, threshold));
+    }
+
+    @Override
+    final boolean testLong(long actual) {
+        return compare(Double.compare((double) actual, threshold));
+    }
+
+    @Override
+    final boolean testDouble(double actual) {
+        return compare(Double.compare(actual, threshold));
+    }
+
+    @Override
+    final boolean testBoolean(boolean actual) {
+        return compare(0);
+    }
+}
+
+final class GreaterPredicate extends NumericPredicate {
+    GreaterPredicate(double threshold) {
+        super(threshold);
+    }
+
+    @Override
+    boolean compare(int cmp) {
+        return cmp > 0;
+    }
+}
+
+final class LessPredicate extends NumericPredicate {
+    LessPredicate(double threshold) {
+        super(threshold);
+    }
+
+    @Override
+    boolean compare(int cmp) {
+        return cmp < 0;
+    }
+}
+
+final class GreaterOrEqualPredicate extends NumericPredicate {
+    GreaterOrEqualPredicate(double threshold) {
+        super(threshold);
+    }
+
+    @Override
+    boolean compare(int cmp) {
+        return cmp >= 0;
+    }
+}
+
+final class LessOrEqualPredicate extends NumericPredicate {
+    LessOrEqualPredicate(double threshold) {
+        super(threshold);
+    }
+
+    @Override
+    boolean compare(int cmp) {
+        return cmp <= 0;
+    }
+}
+
+final class InPredicate extends ConditionPredicate {
+    private final Set<Object> values;
+
+    InPredicate(Set<Object> values) {
+        this.values = values;
+    }
+
+    @Override
+    boolean test(Object actual) {
+        return values.contains(actual);
+    }
+}
+
+final class ContainsPredicate extends ConditionPredicate {
+    private final Object expected;
+
+    ContainsPredicate(Object expected) {
+        this.expected = expected;
+    }
+
+    @Override
+    boolean test(Object actual) {
+        if (actual instanceof String s && expected instanceof String e) {
+            return s.contains(e);
+        }
+        if (actual instanceof Collection<?> collection) {
+            return collection.contains(expected);
+        }
+        return false;
+    }
+}
+
+final class StartsWithPredicate extends ConditionPredicate {
+    private final String prefix;
+
+    StartsWithPredicate(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    boolean test(Object actual) {
+        return actual instanceof String s && s.startsWith(prefix);
+    }
+}
+
+final class EndsWithPredicate extends ConditionPredicate {
+    private final String suffix;
+
+    EndsWithPredicate(String suffix) {
+        this.suffix = suffix;
+    }
+
+    @Override
+    boolean test(Object actual) {
+        return actual instanceof String s && s.endsWith(suffix);
+    }
+}
+
+final class MatchesPredicate extends ConditionPredicate {
+    private final Pattern pattern;
+
+    MatchesPredicate(Pattern pattern) {
+        this.pattern = pattern;
+    }
+
+    @Override
+    boolean test(Object actual) {
+        return actual instanceof String s && pattern.matcher(s).matches();
+    }
+}
@@ -0,0 +1,272 @@
+package ru.lab;
+
+import java.util.*;
+
+// Кэш консультаций без состояния: все входные факты известны до вывода.
+// Ключ - не сами значения, а их класс с точки зрения базы правил: для каждого
+// входного факта набор истинных условий на него, и истинность входных фактов-целей.
+// Входы одного класса проходят одинаковый вывод, поэтому, например, бюджеты
+// 150000 и 160000 между одними порогами дают одну запись. Факты, которых не читает
+// ни одно правило и которые не являются целями, в ключ не входят.
+// Запись хранит только факты, установленные правилами; при попадании они
+// накладываются на входные факты запроса.
+// Вытеснение - LRU по числу записей и суммарному весу (число фактов в записях).
+// Кэш привязан к базе правил: консультация с другой KnowledgeBase очищает его.
+// Стратегия RANDOM кэш обходит. Значения входных фактов не должны изменяться.
+final class ConsultationCache {
+    // signature - биты условий по фактам (смещения в offsets) и истинности целей;
+    // order - номера фактов с ненулевыми битами в порядке ввода, только для стратегий по меткам времени
+    private static final class Key {
+        final ConflictResolutionStrategy strategy;
+        final List<String> goals;
+        final long[] signature;
+        final int[] order;
+        final int hash;
+
+        Key(ConflictResolutionStrategy strategy, List<String> goals, long[] signature, int[] order) {
+            this.strategy = strategy;
+            this.goals = goals;
+            this.signature = signature;
+            this.order = order;
+            this.hash = 31 * (31 * (31 * strategy.hashCode() + Objects.hashCode(goals))
+                    + Arrays.hashCode(signature)) + Arrays.hashCode(order);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key other && hash == other.hash && strategy == other.strategy
+                    && Arrays.equals(signature, other.signature) && Arrays.equals(order, other.order)
+                    && Objects.equals(goals, other.goals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private record Entry(String[] facts, Object[] values, boolean goalsReached, int weight) {}
+
+    private final int maxEntries;
+    private final long maxWeight;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private KnowledgeBase knowledgeBase;
+    // факт -> различные условия на него по всей базе и смещение их битов в ключе
+    private ConditionPredicate[][] conditions;
+    private int[] offsets;
+    private int conditionBits;
+    // цели последнего запроса в порядке сортировки; обычно набор целей от запроса к запросу тот же
+    private Set<String> lastGoals;
+    private List<String> sortedGoals;
+    private long weight;
+
+    private long hits;
+    private long misses;
+    private long bypasses;
+    private long evictions;
+    private long invalidations;
+
+    ConsultationCache(int maxEntries, long maxWeight) {
+        if (maxEntries <= 0 || maxWeight <= 0) {
+            throw new IllegalArgumentException("Размер кэша должен быть положительным");
+        }
+        this.maxEntries = maxEntries;
+        this.maxWeight = maxWeight;
+    }
+
+    ConsultationResult consult(KnowledgeBase knowledgeBase, Map<String, Object> facts, Set<String> goals,
+                               ConflictResolutionStrategy strategy, MatchingEngine matchingEngine) {
+        if (strategy == ConflictResolutionStrategy.RANDOM) {
+            synchronized (this) {
+                bypasses++;
+            }
+            return run(knowledgeBase, facts, goals, strategy, matchingEngine).result;
+        }
+
+        Key key;
+        synchronized (this) {
+            bind(knowledgeBase);
+            key = key(facts, goals, strategy);
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                hits++;
+                return result(facts, entry);
+            }
+            misses++;
+        }
+
+        // вывод идёт вне блокировки; одновременные промахи по одному ключу просто вычислят его дважды
+        Run run = run(knowledgeBase, facts, goals, strategy, matchingEngine);
+        synchronized (this) {
+            if (this.knowledgeBase == knowledgeBase) {
+                Entry previous = entries.put(key, run.entry);
+                if (previous != null) {
+                    weight -= previous.weight;
+                }
+                weight += run.entry.weight;
+                evict();
+            }
+        }
+        return run.result;
+    }
+
+    synchronized void invalidate() {
+        if (!entries.isEmpty()) {
+            invalidations++;
+        }
+        entries.clear();
+        weight = 0;
+    }
+
+    private void bind(KnowledgeBase knowledgeBase) {
+        if (this.knowledgeBase == knowledgeBase) {
+            return;
+        }
+        invalidate();
+        this.knowledgeBase = knowledgeBase;
+        FactTable table = knowledgeBase.facts();
+        List<Map<List<Object>, ConditionPredicate>> byFact = new ArrayList<>(table.size());
+        for (int f = 0; f < table.size(); f++) {
+            byFact.add(new LinkedHashMap<>());
+        }
+        for (CompiledRule rule : knowledgeBase.compiledRules()) {
+            for (int i = 0; i < rule.conditionFacts.length; i++) {
+                Condition condition = rule.rule.conditions.get(i);
+                byFact.get(rule.conditionFacts[i]).putIfAbsent(
+                        Arrays.asList(condition.operator, condition.expectedValue), rule.predicates[i]);
+            }
+        }
+        conditions = new ConditionPredicate[table.size()][];
+        offsets = new int[table.size()];
+        conditionBits = 0;
+        for (int f = 0; f < conditions.length; f++) {
+            conditions[f] = byFact.get(f).values().toArray(new ConditionPredicate[0]);
+            offsets[f] = conditionBits;
+            conditionBits += conditions[f].length;
+        }
+    }
+
+    // goals == null - вывод до исчерпания правил, как в forwardChaining(null)
+    private Key key(Map<String, Object> facts, Set<String> goals, ConflictResolutionStrategy strategy) {
+        if (goals == null) {
+            lastGoals = null;
+            sortedGoals = null;
+        } else if (!goals.equals(lastGoals)) {
+            List<String> sorted = new ArrayList<>(goals);
+            Collections.sort(sorted);
+            sortedGoals = List.copyOf(sorted);
+            lastGoals = Set.copyOf(goals);
+        }
+        // порядок ввода фактов важен только для стратегий по меткам времени
+        boolean ordered = switch (strategy) {
+            case RECENCY, LEX, MEA -> true;
+            default -> false;
+        };
+        FactTable table = knowledgeBase.facts();
+        int goalCount = sortedGoals != null ? sortedGoals.size() : 0;
+        long[] signature = new long[(conditionBits + goalCount + 63) >>> 6];
+        int[] order = ordered ? new int[facts.size()] : null;
+        int ordinal = 0;
+        for (Map.Entry<String, Object> fact : facts.entrySet()) {
+            Object value = fact.getValue();
+            int id = value != null ? table.id(fact.getKey()) : -1;
+            if (id < 0) continue;
+            ConditionPredicate[] tests = conditions[id];
+            boolean passed = false;
+            for (int i = 0; i < tests.length; i++) {
+                if (tests[i].test(value)) {
+                    int bit = offsets[id] + i;
+                    signature[bit >>> 6] |= 1L << bit;
+                    passed = true;
+                }
+            }
+            // факт, не проходящий ни одной проверки, ведёт себя как отсутствующий
+            if (passed && ordered) {
+                order[ordinal++] = id;
+            }
+        }
+        for (int g = 0; g < goalCount; g++) {
+            Object value = facts.get(sortedGoals.get(g));
+            if (value != null && !Boolean.FALSE.equals(value)) {
+                int bit = conditionBits + g;
+                signature[bit >>> 6] |= 1L << bit;
+            }
+        }
+        return new Key(strategy, sortedGoals, signature, ordered ? Arrays.copyOf(order, ordinal) : null);
+    }
+
+    private void evict() {
+        Iterator<Entry> eldest = entries.values().iterator();
+        while ((entries.size() > maxEntries || weight > maxWeight) && eldest.hasNext()) {
+            weight -= eldest.next().weight;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    private static ConsultationResult result(Map<String, Object> facts, Entry entry) {
+        Map<String, Object> workingMemory = new HashMap<>(facts);
+        for (int i = 0; i < entry.facts.length; i++) {
+            workingMemory.put(entry.facts[i], entry.values[i]);
+        }
+        return new ConsultationResult(workingMemory, entry.goalsReached);
+    }
+
+    private record Run(ConsultationResult result, Entry entry) {}
+
+    private static Run run(KnowledgeBase knowledgeBase, Map<String, Object> facts, Set<String> goals,
+                           ConflictResolutionStrategy strategy, MatchingEngine matchingEngine) {
+        Session session = knowledgeBase.newSession();
+        session.setStrategy(strategy);
+        session.setMatchingEngine(matchingEngine);
+        facts.forEach(session::setFact);
+        // записи правил в порядке срабатывания; повторная запись факта заменяет значение
+        Map<String, Object> written = new LinkedHashMap<>();
+        session.addListener(new InferenceListener() {
+            @Override
+            public void factSet(String name, Object value, Rule source) {
+                if (source != null) {
+                    written.remove(name);
+                    written.put(name, value);
+                }
+            }
+        });
+        boolean reached = session.forwardChaining(goals);
+        Entry entry = new Entry(written.keySet().toArray(new String[0]), written.values().toArray(),
+                reached, 1 + written.size());
+        return new Run(new ConsultationResult(session.getWorkingMemory(), reached), entry);
+    }
+
+    synchronized long hits() {
+        return hits;
+    }
+
+    synchronized long misses() {
+        return misses;
+    }
+
+    synchronized long bypasses() {
+        return bypasses;
+    }
+
+    synchronized long evictions() {
+        return evictions;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized double hitRate() {
+        long total = hits + misses;
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("записей: %d, вес: %d, попаданий: %d, промахов: %d (%.1f%%), в обход: %d, "
+                        + "вытеснено: %d, сбросов: %d", entries.size(), weight, hits, misses, hitRate() * 100,
+                bypasses, evictions, invalidations);
+    }
+}
@@ -0,0 +1,6 @@
+package ru.lab;
+
+import java.util.Map;
+
+// Итог консультации: рабочая память после вывода и достигнуты ли цели
+record ConsultationResult(Map<String, Object> workingMemory, boolean goalsReached) {}
@@ -0,0 +1,365 @@
+package ru.lab;
+
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Формат DIMACS CNF:
+//
+//   c комментарий
+//   p cnf <переменных> <дизъюнктов>
+//   1 -3 0
+//   2 3 -1 0
+//
+// Переменная v становится новым атомом области scope с именем из строки
+// "c var v имя", если она есть (так пишет write), иначе с именем "v". С атомами
+// других задач и переменными формул они не совпадают, даже если имена равны, и
+// действительны, пока scope открыт. Файл читается через отображение в память
+// и разбирается побайтно: строки создаются только для имён переменных, по одной
+// на переменную. Число дизъюнктов в заголовке не проверяется, "%" (как в SATLIB)
+// завершает разбор.
+final class Dimacs {
+    private Dimacs() {}
+
+    static List<Clause> read(Path path, Atoms.Scope scope) throws IOException {
+        List<Clause> clauses = new ArrayList<>();
+        read(path, scope, clauses::add);
+        return clauses;
+    }
+
+    // дизъюнкты передаются в sink по одному, по мере чтения
+    static void read(Path path, Atoms.Scope scope, Consumer<Clause> sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            read(buffer, scope, sink);
+        }
+    }
+
+    static void read(ByteBuffer in, Atoms.Scope scope, Consumer<Clause> sink) throws IOException {
+        new Parser(in, scope, sink).parse();
+    }
+
+    private static final class Parser {
+        private final ByteBuffer in;
+        private final Atoms.Scope scope;
+        private final Consumer<Clause> sink;
+        private final int limit;
+        private int position;
+        private int line = 1;
+
+        // переменная -> атом (-1 - ещё не встречалась) и имя из комментария
+        private int[] atoms = new int[0];
+        private final Map<Integer, String> names = new HashMap<>();
+        private int[] literals = new int[16];
+        private int size;
+        private boolean header;
+
+        Parser(ByteBuffer in, Atoms.Scope scope, Consumer<Clause> sink) {
+            this.in = in;
+            this.scope = scope;
+            this.sink = sink;
+            this.position = in.position();
+            this.limit = in.limit();
+        }
+
+        void parse() throws IOException {
+            while (true) {
+                skipSpaces();
+                if (position >= limit) break;
+                byte b = in.get(position);
+                if (b == 'c') {
+                    comment();
+                } else if (b == 'p') {
+                    problem();
+                } else if (b == '%') {
+                    break;
+                } else if (b == '\n') {
+                    position++;
+                    line++;
+                } else {
+                    int value = readInt();
+                    if (value == 0) {
+                        emit();
+                    } else {
+                        add(value);
+                    }
+                }
+            }
+            // последний дизъюнкт без завершающего 0
+            if (size > 0) {
+                emit();
+            }
+        }
+
+        private void comment() throws IOException {
+            position++;
+            if (matchWord("var")) {
+                skipSpaces();
+                int variable = readInt();
+                if (variable <= 0) throw error("номер переменной должен быть положительным");
+                skipSpaces();
+                int start = position;
+                while (position < limit && !isSpace(in.get(position)) && in.get(position) != '\n') {
+                    position++;
+                }
+                if (position == start) throw error("нет имени переменной " + variable);
+                names.put(variable, text(start, position));
+            }
+            skipLine();
+        }
+
+        private void problem() throws IOException {
+            if (header) throw error("повторный заголовок");
+            position++;
+            if (!matchWord("cnf")) throw error("ожидался заголовок \"p cnf\"");
+            skipSpaces();
+            int variables = readInt();
+            skipSpaces();
+            int clauses = readInt();
+            if (variables < 0 || clauses < 0) throw error("отрицательный размер в заголовке");
+            header = true;
+            growAtoms(variables + 1);
+            skipLine();
+        }
+
+        private void add(int value) throws IOException {
+            if (!header) throw error("дизъюнкт до заголовка \"p cnf\"");
+            int variable = Math.abs(value);
+            if (size == literals.length) {
+                literals = Arrays.copyOf(literals, size * 2);
+            }
+            literals[size++] = Clause.literal(atom(variable), value < 0);
+        }
+
+        private void emit() {
+            sink.accept(Clause.of(literals, size));
+            size = 0;
+        }
+
+        private int atom(int variable) {
+            if (variable >= atoms.length) {
+                growAtoms(Math.max(variable + 1, atoms.length * 2));
+            }
+            int atom = atoms[variable];
+            if (atom < 0) {
+                String name = names.get(variable);
+                atom = scope.fresh(name != null ? name : Integer.toString(variable));
+                atoms[variable] = atom;
+            }
+            return atom;
+        }
+
+        private void growAtoms(int length) {
+            if (length <= atoms.length) return;
+            int old = atoms.length;
+            atoms = Arrays.copyOf(atoms, length);
+            Arrays.fill(atoms, old, length, -1);
+        }
+
+        // слово целиком, за которым пробел или конец строки
+        private boolean matchWord(String word) {
+            int start = position;
+            skipSpaces();
+            int end = position + word.length();
+            if (end <= limit && (end == limit || isSpace(in.get(end)) || in.get(end) == '\n')) {
+                boolean matches = true;
+                for (int i = 0; i < word.length() && matches; i++) {
+                    matches = in.get(position + i) == word.charAt(i);
+                }
+                if (matches) {
+                    position = end;
+                    return true;
+                }
+            }
+            position = start;
+            return false;
+        }
+
+        private int readInt() throws IOException {
+            boolean negative = false;
+            if (position < limit && in.get(position) == '-') {
+                negative = true;
+                position++;
+            }
+            int start = position;
+            long value = 0;
+            while (position < limit) {
+                int digit = in.get(position) - '0';
+                if (digit < 0 || digit > 9) break;
+                value = value * 10 + digit;
+                if (value > Integer.MAX_VALUE) throw error("число вне диапазона");
+                position++;
+            }
+            if (position == start) {
+                throw error(position < limit ? "ожидалось число, а не '" + (char) (in.get(position) & 0xFF) + "'"
+                        : "ожидалось число");
+            }
+            if (position < limit && !isSpace(in.get(position)) && in.get(position) != '\n') {
+                throw error("некорректное число");
+            }
+            return (int) (negative ? -value : value);
+        }
+
+        private void skipSpaces() {
+            while (position < limit && isSpace(in.get(position))) {
+                position++;
+            }
+        }
+
+        private void skipLine() {
+            while (position < limit && in.get(position) != '\n') {
+                position++;
+            }
+        }
+
+        private static boolean isSpace(byte b) {
+            return b == ' ' || b == '\t' || b == '\r';
+        }
+
+        private String text(int start, int end) {
+            byte[] bytes = new byte[end - start];
+            in.get(start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private IOException error(String message) {
+            return new IOException("DIMACS, строка " + line + ": " + message);
+        }
+    }
+
+    // Переменные нумеруются по первому появлению атома; для каждой пишется
+    // строка "c var v имя", чтобы read восстановил те же имена. Имя читается до
+    // пробела, поэтому атомы с пробельными символами в имени не записываются.
+    static void write(Collection<Clause> clauses, Path path) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path)) {
+            write(clauses, out);
+        }
+    }
+
+    static void write(Collection<Clause> clauses, OutputStream out) throws IOException {
+        int[] variables = new int[16];
+        IntList atoms = new IntList();
+        for (Clause clause : clauses) {
+            for (int literal : clause.literals) {
+                int atom = Clause.atom(literal);
+                if (atom >= variables.length) {
+                    variables = Arrays.copyOf(variables, Math.max(atom + 1, variables.length * 2));
+                }
+                if (variables[atom] == 0) {
+                    atoms.add(atom);
+                    variables[atom] = atoms.size;
+                }
+            }
+        }
+
+        String[] names = new String[atoms.size];
+        for (int v = 0; v < atoms.size; v++) {
+            names[v] = Atoms.name(atoms.items[v]);
+            if (names[v].isEmpty() || names[v].codePoints().anyMatch(Character::isWhitespace)) {
+                throw new IllegalArgumentException("имя атома нельзя записать в DIMACS: \"" + names[v] + "\"");
+            }
+        }
+
+        Output output = new Output(out);
+        for (int v = 1; v <= atoms.size; v++) {
+            output.ascii("c var ");
+            output.number(v);
+            output.write(' ');
+            output.bytes(names[v - 1].getBytes(StandardCharsets.UTF_8));
+            output.write('\n');
+        }
+        output.ascii("p cnf ");
+        output.number(atoms.size);
+        output.write(' ');
+        output.number(clauses.size());
+        output.write('\n');
+        for (Clause clause : clauses) {
+            for (int literal : clause.literals) {
+                int variable = variables[Clause.atom(literal)];
+                output.number(Clause.isNegative(literal) ? -variable : variable);
+                output.write(' ');
+            }
+            output.write('0');
+            output.write('\n');
+        }
+        output.flush();
+    }
+
+    private static final class IntList {
+        int[] items = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = value;
+        }
+    }
+
+    // буферизованный вывод чисел без промежуточных строк
+    private static final class Output {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[1 << 16];
+        private final byte[] digits = new byte[11];
+        private int size;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void write(int b) throws IOException {
+            if (size == buffer.length) {
+                flushBuffer();
+            }
+            buffer[size++] = (byte) b;
+        }
+
+        void ascii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                write(s.charAt(i));
+            }
+        }
+
+        void bytes(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                write(b);
+            }
+        }
+
+        void number(int value) throws IOException {
+            if (value < 0) {
+                write('-');
+                value = -value;
+            }
+            int n = 0;
+            do {
+                digits[n++] = (byte) ('0' + value % 10);
+                value /= 10;
+            } while (value != 0);
+            while (n > 0) {
+                write(digits[--n]);
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+
+        void flush() throws IOException {
+            flushBuffer();
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package ru.lab;
+
+import java.util.*;
+
+// Дерево решений для консультаций без состояния: все входные факты известны до вывода.
+// Строится символьным прогоном прямого вывода: пока условия можно вычислить, прогон
+// идёт как в Session; на первом условии с неизвестным входным фактом узел ветвится
+// на "истинно" и "ложно". Консультация - проход от корня к листу, лист хранит
+// записи сработавших правил. Одинаковые поддеревья разделяются.
+// Стратегии, зависящие от случая или порядка ввода фактов, не поддерживаются.
+final class DiscriminationTree {
+    private static final int MAX_ITERATIONS = 100; // как в Session
+    private static final int MAX_NODES = 1_000_000;
+
+    // проверка входного факта; operator == null - проверка истинности факта-цели
+    private record TestKey(String fact, String operator, Object expectedValue) {}
+
+    private interface Node {}
+
+    // потомки уже разделены, поэтому сравниваются по ссылке, а не обходом поддеревьев
+    private static final class Test implements Node {
+        final TestKey key;
+        final ConditionPredicate predicate;
+        final Node ifTrue;
+        final Node ifFalse;
+        final int hash;
+
+        Test(TestKey key, ConditionPredicate predicate, Node ifTrue, Node ifFalse) {
+            this.key = key;
+            this.predicate = predicate;
+            this.ifTrue = ifTrue;
+            this.ifFalse = ifFalse;
+            this.hash = Objects.hash(key, System.identityHashCode(ifTrue), System.identityHashCode(ifFalse));
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Test other
+                    && key.equals(other.key) && ifTrue == other.ifTrue && ifFalse == other.ifFalse;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // факты, установленные правилами, в порядке записи
+    private record Leaf(List<String> facts, List<Object> values, boolean goalsReached) implements Node {}
+
+    private final KnowledgeBase knowledgeBase;
+    private final ConflictResolutionStrategy strategy;
+    private final Set<String> goals;
+    private final Node root;
+    private final int size;
+
+    private DiscriminationTree(KnowledgeBase knowledgeBase, ConflictResolutionStrategy strategy,
+                               Set<String> goals, Node root, int size) {
+        this.knowledgeBase = knowledgeBase;
+        this.strategy = strategy;
+        this.goals = goals;
+        this.root = root;
+        this.size = size;
+    }
+
+    static DiscriminationTree compile(KnowledgeBase knowledgeBase, ConflictResolutionStrategy strategy,
+                                      Set<String> goals) {
+        switch (strategy) {
+            case RANDOM, RECENCY, LEX, MEA -> throw new IllegalArgumentException(
+                    "Стратегия " + strategy + " зависит от случая или порядка ввода фактов");
+            default -> { }
+        }
+        Set<String> goalSet = Collections.unmodifiableSet(new LinkedHashSet<>(goals));
+        Builder builder = new Builder(knowledgeBase, strategy, goalSet);
+        Node root = builder.build(new HashMap<>());
+        return new DiscriminationTree(knowledgeBase, strategy, goalSet, root, builder.nodes.size());
+    }
+
+    ConsultationResult classify(Map<String, Object> facts) {
+        Node node = root;
+        while (node instanceof Test test) {
+            node = evaluate(test, facts.get(test.key.fact)) ? test.ifTrue : test.ifFalse;
+        }
+        Leaf leaf = (Leaf) node;
+        Map<String, Object> result = new HashMap<>(facts);
+        for (int i = 0; i < leaf.facts.size(); i++) {
+            result.put(leaf.facts.get(i), leaf.values.get(i));
+        }
+        return new ConsultationResult(result, leaf.goalsReached);
+    }
+
+    // как WorkingMemory.test и WorkingMemory.isTrue: отсутствие и null не проходят проверок
+    private static boolean evaluate(Test test, Object value) {
+        if (value == null) return false;
+        if (test.predicate == null) return !Boolean.FALSE.equals(value);
+        return test.predicate.test(value);
+    }
+
+    // число различных узлов
+    int size() {
+        return size;
+    }
+
+    // Сверка с прямым выводом в новой сессии; возвращает входы, на которых результаты разошлись
+    List<Map<String, Object>> mismatches(Collection<Map<String, Object>> corpus) {
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Map<String, Object> facts : corpus) {
+            Session session = knowledgeBase.newSession();
+            session.setStrategy(strategy);
+            facts.forEach(session::setFact);
+            boolean reached = session.forwardChaining(goals);
+            ConsultationResult outcome = classify(facts);
+            if (reached != outcome.goalsReached() || !session.getWorkingMemory().equals(outcome.workingMemory())) {
+                result.add(facts);
+            }
+        }
+        return result;
+    }
+
+    private static final class Builder {
+        private final KnowledgeBase knowledgeBase;
+        private final FactTable facts;
+        private final ConflictResolutionStrategy strategy;
+        private final Set<String> goals;
+        private final Map<TestKey, ConditionPredicate> predicates = new HashMap<>();
+        private final Map<Node, Node> nodes = new HashMap<>();
+
+        Builder(KnowledgeBase knowledgeBase, ConflictResolutionStrategy strategy, Set<String> goals) {
+            this.knowledgeBase = knowledgeBase;
+            this.facts = knowledgeBase.facts();
+            this.strategy = strategy;
+            this.goals = goals;
+        }
+
+        Node build(Map<TestKey, Boolean> decisions) {
+            Object result = simulate(decisions);
+            Node node;
+            if (result instanceof TestKey key) {
+                decisions.put(key, true);
+                Node ifTrue = build(decisions);
+                decisions.put(key, false);
+                Node ifFalse = build(decisions);
+                decisions.remove(key);
+                node = ifTrue == ifFalse ? ifTrue : new Test(key, predicates.get(key), ifTrue, ifFalse);
+            } else {
+                node = (Node) result;
+            }
+            Node shared = nodes.putIfAbsent(node, node);
+            if (shared == null && nodes.size() > MAX_NODES) {
+                throw new IllegalStateException("Дерево решений превысило " + MAX_NODES + " узлов");
+            }
+            return shared != null ? shared : node;
+        }
+
+        // Прогон прямого вывода при решениях decisions; Leaf или TestKey, на котором нужно ветвиться
+        private Object simulate(Map<TestKey, Boolean> decisions) {
+            WorkingMemory workingMemory = new WorkingMemory(facts);
+            // входной факт, значение которого неизвестно и не записано правилом
+            boolean[] unknown = new boolean[facts.size()];
+            Arrays.fill(unknown, true);
+            // истинное равенство константе задаёт значение факта, остальные его условия вычисляются
+            decisions.forEach((key, value) -> {
+                int id = facts.id(key.fact);
+                if (value && id >= 0 && "=".equals(key.operator) && key.expectedValue != null) {
+                    workingMemory.set(id, key.expectedValue);
+                    unknown[id] = false;
+                }
+            });
+
+            List<CompiledRule> rules = knowledgeBase.compiledRules();
+            List<String> written = new ArrayList<>();
+            List<Object> values = new ArrayList<>();
+            BitSet available = new BitSet(rules.size());
+            available.set(0, rules.size());
+            Agenda agenda = Agenda.create(strategy, new Random(0));
+
+            for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+                List<CompiledRule> applicable = new ArrayList<>();
+                for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1)) {
+                    CompiledRule rule = rules.get(i);
+                    Object state = applicable(rule, workingMemory, unknown, decisions);
+                    if (state instanceof TestKey) {
+                        return state;
+                    }
+                    if (state == Boolean.TRUE) {
+                        applicable.add(rule);
+                    }
+                }
+                if (applicable.isEmpty()) {
+                    break;
+                }
+
+                agenda.load(applicable, workingMemory);
+                while (!agenda.isEmpty()) {
+                    CompiledRule rule = agenda.poll();
+                    for (int i = 0; i < rule.actionFacts.length; i++) {
+                        workingMemory.set(rule.actionFacts[i], rule.actionValues[i]);
+                        unknown[rule.actionFacts[i]] = false;
+                        written.add(facts.name(rule.actionFacts[i]));
+                        values.add(rule.actionValues[i]);
+                    }
+                    available.clear(rule.index);
+
+                    Object reached = goalsAchieved(workingMemory, unknown, decisions);
+                    if (reached instanceof TestKey) {
+                        return reached;
+                    }
+                    if (reached == Boolean.TRUE) {
+                        return leaf(written, values, true);
+                    }
+                }
+            }
+            return leaf(written, values, false);
+        }
+
+        private static Leaf leaf(List<String> written, List<Object> values, boolean goalsReached) {
+            return new Leaf(List.copyOf(written), Collections.unmodifiableList(new ArrayList<>(values)), goalsReached);
+        }
+
+        // TRUE, FALSE или первое условие на неизвестном факте, если ни одно известное не ложно
+        private Object applicable(CompiledRule rule, WorkingMemory workingMemory, boolean[] unknown,
+                                  Map<TestKey, Boolean> decisions) {
+            TestKey undecided = null;
+            for (int i = 0; i < rule.conditionFacts.length; i++) {
+                int fact = rule.conditionFacts[i];
+                boolean passed;
+                if (!unknown[fact]) {
+                    passed = workingMemory.test(fact, rule.predicates[i]);
+                } else {
+                    Condition condition = rule.rule.conditions.get(i);
+                    TestKey key = new TestKey(condition.factName, condition.operator, condition.expectedValue);
+                    Boolean decided = decisions.get(key);
+                    if (decided == null) {
+                        predicates.putIfAbsent(key, rule.predicates[i]);
+                        if (undecided == null) {
+                            undecided = key;
+                        }
+                        continue;
+                    }
+                    passed = decided;
+                }
+                if (!passed) {
+                    return Boolean.FALSE;
+                }
+            }
+            return undecided != null ? undecided : Boolean.TRUE;
+        }
+
+        private Object goalsAchieved(WorkingMemory workingMemory, boolean[] unknown, Map<TestKey, Boolean> decisions) {
+            TestKey undecided = null;
+            for (String goal : goals) {
+                int id = facts.id(goal);
+                boolean achieved;
+                if (id >= 0 && !unknown[id]) {
+                    achieved = workingMemory.isTrue(id);
+                } else {
+                    TestKey key = new TestKey(goal, null, null);
+                    Boolean decided = decisions.get(key);
+                    if (decided == null) {
+                        if (undecided == null) {
+                            undecided = key;
+                        }
+                        continue;
+                    }
+                    achieved = decided;
+                }
+                if (!achieved) {
+                    return Boolean.FALSE;
+                }
+            }
+            return undecided != null ? undecided : Boolean.TRUE;
+        }
+    }
+}
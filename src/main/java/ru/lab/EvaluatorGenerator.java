@@ -0,0 +1,319 @@
+package ru.lab;
+
+import java.util.*;
+
+// Исходный текст специализированного вычислителя для базы правил.
+// Условия развёрнуты в прямые проверки над типизированными слотами фактов,
+// порядок срабатывания внутри итерации вычислен заранее по стратегии.
+// Семантика прямого вывода та же, что у Session, поэтому поддерживаются только
+// стратегии, порядок которых не зависит от рабочей памяти.
+final class EvaluatorGenerator {
+    private static final int RULES_PER_METHOD = 64; // большие методы JIT не компилирует
+
+    private final String packageName;
+    private final String className;
+    private final String source;
+    private final ConflictResolutionStrategy strategy;
+    private final KnowledgeBase knowledgeBase;
+    private final List<String> constants = new ArrayList<>();
+    private final Map<String, Integer> constantIds = new HashMap<>();
+    private final StringBuilder out = new StringBuilder();
+
+    EvaluatorGenerator(String packageName, String className, String source,
+                       List<Rule> rules, ConflictResolutionStrategy strategy) {
+        switch (strategy) {
+            case RANDOM, RECENCY, LEX, MEA -> throw new IllegalArgumentException(
+                    "Стратегия " + strategy + " зависит от рабочей памяти и не генерируется");
+            default -> { }
+        }
+        this.packageName = packageName;
+        this.className = className;
+        this.source = source;
+        this.strategy = strategy;
+        this.knowledgeBase = new KnowledgeBase(rules);
+    }
+
+    String generate() {
+        List<CompiledRule> rules = knowledgeBase.compiledRules();
+        FactTable facts = knowledgeBase.facts();
+        int chunks = (rules.size() + RULES_PER_METHOD - 1) / RULES_PER_METHOD;
+
+        StringBuilder body = new StringBuilder();
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            matchMethod(body, rules, chunk);
+        }
+        List<CompiledRule> schedule = schedule(rules);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            fireMethod(body, schedule, chunk);
+        }
+
+        if (!packageName.isEmpty()) {
+            out.append("package ").append(packageName).append(";\n\n");
+        }
+        out.append("import java.util.*;\n\n");
+        out.append("// Сгенерировано EvaluatorProcessor из ").append(source)
+                .append(", стратегия ").append(strategy).append(". Не редактировать.\n");
+        out.append("final class ").append(className).append(" implements InferenceSession {\n");
+        out.append("    private static final int RULES = ").append(rules.size()).append(";\n");
+        out.append("    private static final String[] NAMES = {");
+        for (int f = 0; f < facts.size(); f++) {
+            out.append(f == 0 ? "" : ", ").append(literal(facts.name(f)));
+        }
+        out.append("};\n");
+        out.append("    private static final Map<String, Integer> IDS = new HashMap<>();\n");
+        for (int i = 0; i < constants.size(); i++) {
+            out.append("    private static final ").append(constants.get(i)).append(";\n");
+        }
+        out.append("""
+
+                    static {
+                        for (int i = 0; i < NAMES.length; i++) {
+                            IDS.put(NAMES[i], i);
+                        }
+                    }
+
+                    private final Object[] values = new Object[NAMES.length];
+                    private final boolean[] present = new boolean[NAMES.length];
+                    private final boolean[] numeric = new boolean[NAMES.length];
+                    private final double[] numbers = new double[NAMES.length];
+                    private final Map<String, Object> other = new HashMap<>();
+
+                    @Override
+                    public void setFact(String name, Object value) {
+                        Integer id = IDS.get(name);
+                        if (id == null) {
+                            other.put(name, value);
+                            return;
+                        }
+                        values[id] = value;
+                        present[id] = true;
+                        numeric[id] = value instanceof Number;
+                        numbers[id] = value instanceof Number n ? n.doubleValue() : 0;
+                    }
+
+                    @Override
+                    public Object getFact(String name) {
+                        Integer id = IDS.get(name);
+                        return id == null ? other.get(name) : values[id];
+                    }
+
+                    @Override
+                    public Map<String, Object> getWorkingMemory() {
+                        Map<String, Object> map = new HashMap<>(other);
+                        for (int id = 0; id < NAMES.length; id++) {
+                            if (present[id]) {
+                                map.put(NAMES[id], values[id]);
+                            }
+                        }
+                        return map;
+                    }
+
+                    @Override
+                    public void printWorkingMemory() {
+                        System.out.println("\\n=== РАБОЧАЯ ПАМЯТЬ ===");
+                        for (Map.Entry<String, Object> entry : getWorkingMemory().entrySet()) {
+                            System.out.println(entry.getKey() + " = " + entry.getValue());
+                        }
+                    }
+
+                    @Override
+                    public boolean forwardChaining(Set<String> goals) {
+                        String[] goalNames = goals.toArray(new String[0]);
+                        int[] goalIds = new int[goalNames.length];
+                        for (int i = 0; i < goalNames.length; i++) {
+                            goalIds[i] = IDS.getOrDefault(goalNames[i], -1);
+                        }
+                        boolean[] fired = new boolean[RULES];
+                        boolean[] applicable = new boolean[RULES];
+                        for (int iteration = 0; iteration < 100; iteration++) {
+                            int count = 0;
+                """);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            out.append("                count += match").append(chunk).append("(applicable, fired);\n");
+        }
+        out.append("""
+                            if (count == 0) {
+                                break;
+                            }
+                """);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            out.append("                if (fire").append(chunk)
+                    .append("(applicable, fired, goalNames, goalIds)) {\n")
+                    .append("                    return true;\n")
+                    .append("                }\n");
+        }
+        out.append("""
+                        }
+                        return false;
+                    }
+
+                    private boolean goalsAchieved(String[] goalNames, int[] goalIds) {
+                        for (int i = 0; i < goalIds.length; i++) {
+                            Object value = goalIds[i] >= 0 ? values[goalIds[i]] : other.get(goalNames[i]);
+                            if (value == null || Boolean.FALSE.equals(value)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+
+                    private static int compare(boolean numeric, double value, double threshold) {
+                        return numeric ? Double.compare(value, threshold) : 0;
+                    }
+                """);
+        out.append(body);
+        out.append("}\n");
+        return out.toString();
+    }
+
+    // порядок агенды для правил, применимых одновременно; не зависит от рабочей памяти
+    private List<CompiledRule> schedule(List<CompiledRule> rules) {
+        Agenda agenda = Agenda.create(strategy, new Random(0));
+        agenda.load(rules, new WorkingMemory(knowledgeBase.facts()));
+        List<CompiledRule> order = new ArrayList<>(rules.size());
+        while (!agenda.isEmpty()) {
+            order.add(agenda.poll());
+        }
+        return order;
+    }
+
+    private void matchMethod(StringBuilder body, List<CompiledRule> rules, int chunk) {
+        body.append("\n    private int match").append(chunk)
+                .append("(boolean[] applicable, boolean[] fired) {\n");
+        body.append("        int count = 0;\n");
+        int end = Math.min(rules.size(), (chunk + 1) * RULES_PER_METHOD);
+        for (int r = chunk * RULES_PER_METHOD; r < end; r++) {
+            CompiledRule rule = rules.get(r);
+            body.append("        // ").append(rule.rule.name.replace('\n', ' ').replace('\\', '/')).append('\n');
+            body.append("        applicable[").append(r).append("] = !fired[").append(r).append(']');
+            for (int i = 0; i < rule.conditionFacts.length; i++) {
+                body.append("\n                && ").append(condition(rule.conditionFacts[i], rule.rule.conditions.get(i)));
+            }
+            body.append(";\n");
+            body.append("        if (applicable[").append(r).append("]) count++;\n");
+        }
+        body.append("        return count;\n");
+        body.append("    }\n");
+    }
+
+    private void fireMethod(StringBuilder body, List<CompiledRule> schedule, int chunk) {
+        body.append("\n    private boolean fire").append(chunk)
+                .append("(boolean[] applicable, boolean[] fired, String[] goalNames, int[] goalIds) {\n");
+        int end = Math.min(schedule.size(), (chunk + 1) * RULES_PER_METHOD);
+        for (int k = chunk * RULES_PER_METHOD; k < end; k++) {
+            CompiledRule rule = schedule.get(k);
+            int r = rule.index;
+            body.append("        if (applicable[").append(r).append("]) {\n");
+            for (int i = 0; i < rule.actionFacts.length; i++) {
+                int f = rule.actionFacts[i];
+                Object value = rule.actionValues[i];
+                body.append("            values[").append(f).append("] = ").append(constant(value)).append(";\n");
+                body.append("            present[").append(f).append("] = true;\n");
+                if (value instanceof Number n) {
+                    body.append("            numeric[").append(f).append("] = true;\n");
+                    body.append("            numbers[").append(f).append("] = ").append(doubleLiteral(n.doubleValue())).append(";\n");
+                } else {
+                    body.append("            numeric[").append(f).append("] = false;\n");
+                }
+            }
+            body.append("            fired[").append(r).append("] = true;\n");
+            body.append("            if (goalsAchieved(goalNames, goalIds)) return true;\n");
+            body.append("        }\n");
+        }
+        body.append("        return false;\n");
+        body.append("    }\n");
+    }
+
+    // проверка условия с той же семантикой, что у ConditionPredicate в WorkingMemory.test
+    private String condition(int fact, Condition condition) {
+        String value = "values[" + fact + "]";
+        Operator op = Operator.fromSymbol(condition.operator);
+        Object expected = condition.expectedValue;
+        if (expected instanceof Number number) {
+            String cmp = "compare(numeric[" + fact + "], numbers[" + fact + "], "
+                    + doubleLiteral(number.doubleValue()) + ")";
+            switch (op) {
+                case GREATER:
+                    return "(" + value + " != null && " + cmp + " > 0)";
+                case LESS:
+                    return "(" + value + " != null && " + cmp + " < 0)";
+                case GREATER_OR_EQUAL:
+                    return "(" + value + " != null && " + cmp + " >= 0)";
+                case LESS_OR_EQUAL:
+                    return "(" + value + " != null && " + cmp + " <= 0)";
+                default:
+                    break;
+            }
+        }
+        if (expected != null && (op == Operator.EQUALS || op == Operator.NOT_EQUALS)) {
+            return "(" + value + " != null && " + (op == Operator.NOT_EQUALS ? "!" : "")
+                    + value + ".equals(" + constant(expected) + "))";
+        }
+        // остальные операторы - через подготовленный предикат
+        String predicate = define("ConditionPredicate", "ConditionPredicate.compile(Operator." + op.name()
+                + ", " + literal(expected) + ")");
+        return "(" + value + " != null && " + predicate + ".test(" + value + "))";
+    }
+
+    private String constant(Object value) {
+        if (value == null) return "null";
+        if (value instanceof String s) return literal(s);
+        return define("Object", literal(value));
+    }
+
+    private String define(String type, String initializer) {
+        String key = type + " " + initializer;
+        Integer id = constantIds.get(key);
+        if (id == null) {
+            id = constants.size();
+            constantIds.put(key, id);
+            constants.add(type + " K" + id + " = " + initializer);
+        }
+        return "K" + id;
+    }
+
+    private static String literal(Object value) {
+        if (value == null) return "null";
+        if (value instanceof String s) return stringLiteral(s);
+        if (value instanceof Integer i) return "Integer.valueOf(" + i + ")";
+        if (value instanceof Long l) return "Long.valueOf(" + l + "L)";
+        if (value instanceof Double d) return "Double.valueOf(" + doubleLiteral(d) + ")";
+        if (value instanceof Boolean b) return "Boolean." + (b ? "TRUE" : "FALSE");
+        if (value instanceof List<?> list) {
+            StringJoiner items = new StringJoiner(", ", "Arrays.asList(", ")");
+            for (Object item : list) {
+                items.add(literal(item));
+            }
+            return items.toString();
+        }
+        throw new IllegalArgumentException("Значение не записывается в исходный текст: " + value);
+    }
+
+    private static String doubleLiteral(double value) {
+        if (Double.isNaN(value)) return "Double.NaN";
+        if (value == Double.POSITIVE_INFINITY) return "Double.POSITIVE_INFINITY";
+        if (value == Double.NEGATIVE_INFINITY) return "Double.NEGATIVE_INFINITY";
+        return Double.toString(value) + "d";
+    }
+
+    private static String stringLiteral(String s) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (char c : s.toCharArray()) {
+            switch (c) {
+                case '"' -> sb.append("\\\"");
+                case '\\' -> sb.append("\\\\");
+                case '\n' -> sb.append("\\n");
+                case '\r' -> sb.append("\\r");
+                case '\t' -> sb.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+                }
+            }
+        }
+        return sb.append('"').toString();
+    }
+}
@@ -0,0 +1,65 @@
+package ru.lab;
+
+import javax.annotation.processing.*;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+// Процессор @GenerateEvaluator. Сам процессор компилируется отдельным запуском
+// maven-compiler-plugin до основной компиляции (см. pom.xml), файл правил
+// читается из target/classes, куда его уже скопировала фаза process-resources.
+// public - javac создаёт процессор через рефлексию.
+@SupportedAnnotationTypes("ru.lab.GenerateEvaluator")
+public class EvaluatorProcessor extends AbstractProcessor {
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(GenerateEvaluator.class)) {
+            GenerateEvaluator request = element.getAnnotation(GenerateEvaluator.class);
+            String packageName = packageOf(element);
+            try {
+                List<Rule> rules = readRules(packageName, request.rules());
+                String source = new EvaluatorGenerator(packageName, request.className(), request.rules(),
+                        rules, request.strategy()).generate();
+                String qualifiedName = packageName.isEmpty()
+                        ? request.className() : packageName + "." + request.className();
+                try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedName, element).openWriter()) {
+                    writer.write(source);
+                }
+            } catch (IOException | RuntimeException e) {
+                processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                        "Не удалось сгенерировать " + request.className() + ": " + e.getMessage(), element);
+            }
+        }
+        return true;
+    }
+
+    private String packageOf(Element element) {
+        PackageElement pkg = processingEnv.getElementUtils().getPackageOf(element);
+        return pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+    }
+
+    private List<Rule> readRules(String packageName, String resource) throws IOException {
+        FileObject file = processingEnv.getFiler().getResource(StandardLocation.CLASS_PATH, packageName, resource);
+        List<Rule> rules = new ArrayList<>();
+        try (Reader reader = file.openReader(false)) {
+            new RuleFileParser(rules::add).parse(reader);
+        }
+        return rules;
+    }
+}
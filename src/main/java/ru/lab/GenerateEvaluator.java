@@ -0,0 +1,18 @@
+package ru.lab;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+// Просит EvaluatorProcessor сгенерировать при сборке класс className в пакете
+// аннотированного типа из файла правил rules (ресурс того же пакета).
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+@interface GenerateEvaluator {
+    String rules();
+
+    String className();
+
+    ConflictResolutionStrategy strategy() default ConflictResolutionStrategy.HIGHEST_PRIORITY;
+}
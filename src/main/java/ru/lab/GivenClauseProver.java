@@ -0,0 +1,150 @@
+package ru.lab;
+
+import ru.lab.ResolutionMethod.Clause;
+
+import java.util.*;
+
+// Насыщение по схеме "данного дизъюнкта" (given clause).
+// Активные дизъюнкты уже попарно разрезолвированы, пассивные ждут в очереди.
+// На каждом шаге из пассивных выбирается данный дизъюнкт: обычно самый короткий
+// (единичные идут первыми), каждый AGE_RATIO-й - самый старый, чтобы длинные
+// дизъюнкты не откладывались бесконечно. Данный дизъюнкт отбрасывается, если его
+// поглощает активный, иначе сам удаляет поглощённые им активные и резолвируется
+// с активными по каждой паре противоположных литералов; партнёры и кандидаты
+// на поглощение берутся из LiteralIndex.
+// Set-of-support включается явно: аксиомы сразу активны и между собой не резолвируются,
+// каждая резольвента происходит от отрицания заключения. Это полно, только если
+// аксиомы непротиворечивы: из противоречивой базы знаний (P ∧ ¬P ⊢ Q) вывод не найдётся.
+final class GivenClauseProver {
+    private static final int AGE_RATIO = 5;
+
+    private static final class Passive {
+        final Clause clause;
+        final long age;
+        boolean taken;
+
+        Passive(Clause clause, long age) {
+            this.clause = clause;
+            this.age = age;
+        }
+    }
+
+    private final boolean setOfSupport;
+
+    private final LiteralIndex active = new LiteralIndex();
+    private final PriorityQueue<Passive> byWeight = new PriorityQueue<>(
+            Comparator.<Passive>comparingInt(p -> p.clause.size()).thenComparingLong(p -> p.age));
+    private final ArrayDeque<Passive> byAge = new ArrayDeque<>();
+    private final Set<Clause> seen = new HashSet<>();
+    private long age;
+
+    private long given;
+    private long generated;
+    private long forwardSubsumed;
+    private long backwardSubsumed;
+
+    GivenClauseProver() {
+        this(false);
+    }
+
+    GivenClauseProver(boolean setOfSupport) {
+        this.setOfSupport = setOfSupport;
+    }
+
+    // true - из axioms и negatedGoal выводится пустой дизъюнкт
+    boolean refute(List<Clause> axioms, List<Clause> negatedGoal) {
+        for (Clause clause : axioms) {
+            if (clause.isEmpty()) return true;
+            if (clause.isTautology() || !seen.add(clause)) continue;
+            if (setOfSupport) {
+                activate(clause);
+            } else {
+                addPassive(clause);
+            }
+        }
+        for (Clause clause : negatedGoal) {
+            if (clause.isEmpty()) return true;
+            if (!clause.isTautology() && seen.add(clause)) {
+                addPassive(clause);
+            }
+        }
+
+        Clause clause;
+        while ((clause = select()) != null) {
+            given++;
+            if (activate(clause) && generate(clause)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void addPassive(Clause clause) {
+        Passive passive = new Passive(clause, age++);
+        byWeight.add(passive);
+        byAge.add(passive);
+    }
+
+    private Clause select() {
+        boolean oldest = given % AGE_RATIO == AGE_RATIO - 1;
+        Queue<Passive> queue = oldest ? byAge : byWeight;
+        Passive passive;
+        while ((passive = queue.poll()) != null) {
+            if (!passive.taken) {
+                passive.taken = true;
+                return passive.clause;
+            }
+        }
+        // выбранная очередь пуста - значит, пуста и вторая
+        return null;
+    }
+
+    // false - дизъюнкт поглощён активным и отброшен
+    private boolean activate(Clause clause) {
+        if (isSubsumed(clause)) {
+            return false;
+        }
+        for (Clause subsumed : active.subsumedBy(clause)) {
+            active.remove(subsumed);
+            backwardSubsumed++;
+        }
+        active.add(clause);
+        return true;
+    }
+
+    // true - получен пустой дизъюнкт
+    private boolean generate(Clause clause) {
+        for (int literal : clause.literals) {
+            for (Clause other : active.clausesWith(literal ^ 1)) {
+                Clause resolvent = clause.resolve(other, literal);
+                generated++;
+                if (resolvent.isEmpty()) return true;
+                if (resolvent.isTautology() || !seen.add(resolvent)) continue;
+                if (!isSubsumed(resolvent)) {
+                    addPassive(resolvent);
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isSubsumed(Clause clause) {
+        if (active.subsumer(clause) != null) {
+            forwardSubsumed++;
+            return true;
+        }
+        return false;
+    }
+
+    // активные дизъюнкты; если refute вернул false, это насыщенное множество
+    List<Clause> activeClauses() {
+        return active.clauses();
+    }
+
+    @Override
+    public String toString() {
+        return "данных дизъюнктов: " + given + ", резольвент: " + generated
+                + ", поглощено прямо: " + forwardSubsumed + ", обратно: " + backwardSubsumed
+                + ", активных: " + active.size();
+    }
+}
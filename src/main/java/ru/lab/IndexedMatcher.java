@@ -0,0 +1,222 @@
+package ru.lab;
+
+import java.util.*;
+
+// Инвертированный индекс "факт -> условия, которые его читают".
+// Неизменяем и разделяется сессиями.
+class ConditionIndex {
+    final List<CompiledRule> rules;
+    final int[] conditionFact;
+    final ConditionPredicate[] conditionPredicate;
+    final int[] conditionRule;
+    final int[] conditionCount;     // число условий у каждого правила
+    final int[][] conditionsByFact; // по номеру факта
+    final int[][] plainConditionsByFact; // без пороговых условий из rangesByFact
+    final RangeIndex[] rangesByFact;     // null - у факта нет пороговых условий
+
+    ConditionIndex(List<CompiledRule> rules, int factCount) {
+        this.rules = rules;
+        this.conditionCount = new int[rules.size()];
+
+        int total = 0;
+        int[] perFact = new int[factCount];
+        for (CompiledRule rule : rules) {
+            total += rule.conditionFacts.length;
+            for (int fact : rule.conditionFacts) {
+                perFact[fact]++;
+            }
+        }
+
+        conditionFact = new int[total];
+        conditionPredicate = new ConditionPredicate[total];
+        conditionRule = new int[total];
+        conditionsByFact = new int[factCount][];
+        for (int f = 0; f < factCount; f++) {
+            conditionsByFact[f] = new int[perFact[f]];
+        }
+        int[] fill = new int[factCount];
+        int c = 0;
+        for (CompiledRule rule : rules) {
+            for (int i = 0; i < rule.conditionFacts.length; i++, c++) {
+                int fact = rule.conditionFacts[i];
+                conditionFact[c] = fact;
+                conditionPredicate[c] = rule.predicates[i];
+                conditionRule[c] = rule.index;
+                conditionsByFact[fact][fill[fact]++] = c;
+                conditionCount[rule.index]++;
+            }
+        }
+
+        plainConditionsByFact = new int[factCount][];
+        rangesByFact = new RangeIndex[factCount];
+        for (int f = 0; f < factCount; f++) {
+            List<Integer> ranges = new ArrayList<>();
+            List<Integer> plain = new ArrayList<>();
+            for (int cond : conditionsByFact[f]) {
+                (RangeIndex.isRange(conditionPredicate[cond]) ? ranges : plain).add(cond);
+            }
+            plainConditionsByFact[f] = plain.stream().mapToInt(Integer::intValue).toArray();
+            if (!ranges.isEmpty()) {
+                rangesByFact[f] = new RangeIndex(ranges, conditionPredicate);
+            }
+        }
+    }
+}
+
+// Изменённые факты копятся в очереди и перепроверяются только их условия
+// перед следующей итерацией; у каждого правила хранится число невыполненных условий.
+// Пороговые условия числового факта не перебираются: по RangeIndex меняются
+// только условия между старой и новой границей, за O(log n + k).
+class IndexedMatcher implements RuleMatcher {
+    private final ConditionIndex index;
+    private final WorkingMemory workingMemory;
+    private final MatchStats stats;
+
+    private final boolean[] conditionState;
+    private final int[] unsatisfied;
+    private final BitSet dirtyFacts = new BitSet();
+    private final BitSet available;
+    // выполненные границы RangeIndex: lower[0 .. lowerCount), upper[upperFrom ..);
+    // rangeExact == false - последнее значение было нечисловым и состояния расставлены поштучно
+    private final int[] lowerCount;
+    private final int[] upperFrom;
+    private final boolean[] rangeExact;
+
+    IndexedMatcher(ConditionIndex index, WorkingMemory workingMemory, MatchStats stats) {
+        this.index = index;
+        this.workingMemory = workingMemory;
+        this.stats = stats;
+        this.conditionState = new boolean[index.conditionFact.length];
+        this.unsatisfied = index.conditionCount.clone();
+        this.available = new BitSet(index.rules.size());
+        dirtyFacts.set(0, index.conditionsByFact.length);
+
+        int factCount = index.conditionsByFact.length;
+        lowerCount = new int[factCount];
+        upperFrom = new int[factCount];
+        rangeExact = new boolean[factCount];
+        for (int f = 0; f < factCount; f++) {
+            if (index.rangesByFact[f] != null) {
+                upperFrom[f] = index.rangesByFact[f].upper.length;
+                rangeExact[f] = true;
+            }
+        }
+    }
+
+    @Override
+    public void startRun() {
+        available.set(0, index.rules.size());
+    }
+
+    @Override
+    public void startRun(BitSet rules) {
+        available.clear();
+        available.or(rules);
+    }
+
+    @Override
+    public void makeAvailable(int ruleIndex) {
+        available.set(ruleIndex);
+    }
+
+    @Override
+    public List<CompiledRule> applicableRules() {
+        stats.iterations++;
+        for (int f = dirtyFacts.nextSetBit(0); f >= 0; f = dirtyFacts.nextSetBit(f + 1)) {
+            for (int c : index.plainConditionsByFact[f]) {
+                evaluate(f, c);
+            }
+            if (index.rangesByFact[f] != null) {
+                updateRanges(f, index.rangesByFact[f]);
+            }
+        }
+        dirtyFacts.clear();
+
+        List<CompiledRule> applicableRules = new ArrayList<>();
+        for (int i = available.nextSetBit(0); i >= 0; i = available.nextSetBit(i + 1)) {
+            if (unsatisfied[i] == 0) {
+                applicableRules.add(index.rules.get(i));
+            }
+        }
+        return applicableRules;
+    }
+
+    private void evaluate(int fact, int c) {
+        setState(c, workingMemory.test(fact, index.conditionPredicate[c]));
+    }
+
+    private void setState(int c, boolean state) {
+        stats.conditionEvaluations++;
+        if (stats.metrics != null) {
+            stats.metrics.conditionEvaluated(c, state);
+        }
+        if (state != conditionState[c]) {
+            conditionState[c] = state;
+            unsatisfied[index.conditionRule[c]] += state ? -1 : 1;
+        }
+    }
+
+    // Условия, решённые двоичным поиском, считаются вычисленными, только если их состояние
+    // меняется; нечисловое значение или его отсутствие проверяют все границы по одной
+    private void updateRanges(int fact, RangeIndex range) {
+        double value;
+        switch (workingMemory.kind(fact)) {
+            case WorkingMemory.INT, WorkingMemory.LONG -> value = workingMemory.getLong(fact);
+            case WorkingMemory.DOUBLE -> value = workingMemory.getDouble(fact);
+            case WorkingMemory.OBJECT -> {
+                if (!(workingMemory.get(fact) instanceof Number number)) {
+                    evaluateRanges(fact, range);
+                    return;
+                }
+                value = number.doubleValue();
+            }
+            default -> {
+                evaluateRanges(fact, range);
+                return;
+            }
+        }
+
+        int newLower = range.lowerSatisfied(value);
+        int newUpper = range.upperSatisfiedFrom(value);
+        if (!rangeExact[fact]) {
+            for (int i = 0; i < range.lower.length; i++) {
+                setState(range.lower[i], i < newLower);
+            }
+            for (int i = 0; i < range.upper.length; i++) {
+                setState(range.upper[i], i >= newUpper);
+            }
+            rangeExact[fact] = true;
+        } else {
+            int oldLower = lowerCount[fact];
+            for (int i = Math.min(oldLower, newLower); i < Math.max(oldLower, newLower); i++) {
+                setState(range.lower[i], i < newLower);
+            }
+            int oldUpper = upperFrom[fact];
+            for (int i = Math.min(oldUpper, newUpper); i < Math.max(oldUpper, newUpper); i++) {
+                setState(range.upper[i], i >= newUpper);
+            }
+        }
+        lowerCount[fact] = newLower;
+        upperFrom[fact] = newUpper;
+    }
+
+    private void evaluateRanges(int fact, RangeIndex range) {
+        for (int c : range.lower) {
+            evaluate(fact, c);
+        }
+        for (int c : range.upper) {
+            evaluate(fact, c);
+        }
+        rangeExact[fact] = false;
+    }
+
+    @Override
+    public void ruleFired(CompiledRule rule) {
+        available.clear(rule.index);
+    }
+
+    @Override
+    public void factChanged(int factId) {
+        dirtyFacts.set(factId);
+    }
+}
@@ -0,0 +1,322 @@
+package ru.lab;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+// События машины вывода. Без зарегистрированных слушателей
+// ProductionSystem не строит строк и не вызывает этих методов.
+interface InferenceListener {
+
+    // source == null - факт установлен извне через setFact
+    default void factSet(String name, Object value, Rule source) {}
+
+    default void factRetracted(String name) {}
+
+    default void ruleFired(Rule rule) {}
+
+    default void forwardChainingStarted() {}
+
+    default void iterationStarted(int iteration) {}
+
+    default void conflictSetBuilt(int iteration, int conflictSetSize) {}
+
+    default void conflictResolved(int conflictSetSize, Rule selected) {}
+
+    default void iterationEnded(int iteration, int firedRules) {}
+
+    default void goalsReached(Set<String> goals, int iteration) {}
+
+    default void forwardChainingFailed(int iterations) {}
+
+    default void backwardChainingStarted(String goal) {}
+
+    // цель уже есть в рабочей памяти (значение может быть null или false)
+    default void goalKnown(String goal, Object value) {}
+
+    default void cycleDetected(String goal) {}
+
+    default void noRulesForGoal(String goal) {}
+
+    default void ruleTried(Rule rule, String goal) {}
+
+    default void ruleConditionsMet(Rule rule) {}
+
+    default void goalFailed(String goal) {}
+
+    // подцель уже не удалось вывести ранее в этом же запросе
+    default void goalFailedBefore(String goal) {}
+}
+
+class CompositeInferenceListener implements InferenceListener {
+    private final InferenceListener[] listeners;
+
+    CompositeInferenceListener(InferenceListener... listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public void factSet(String name, Object value, Rule source) {
+        for (InferenceListener l : listeners) l.factSet(name, value, source);
+    }
+
+    @Override
+    public void factRetracted(String name) {
+        for (InferenceListener l : listeners) l.factRetracted(name);
+    }
+
+    @Override
+    public void ruleFired(Rule rule) {
+        for (InferenceListener l : listeners) l.ruleFired(rule);
+    }
+
+    @Override
+    public void forwardChainingStarted() {
+        for (InferenceListener l : listeners) l.forwardChainingStarted();
+    }
+
+    @Override
+    public void iterationStarted(int iteration) {
+        for (InferenceListener l : listeners) l.iterationStarted(iteration);
+    }
+
+    @Override
+    public void conflictSetBuilt(int iteration, int conflictSetSize) {
+        for (InferenceListener l : listeners) l.conflictSetBuilt(iteration, conflictSetSize);
+    }
+
+    @Override
+    public void conflictResolved(int conflictSetSize, Rule selected) {
+        for (InferenceListener l : listeners) l.conflictResolved(conflictSetSize, selected);
+    }
+
+    @Override
+    public void iterationEnded(int iteration, int firedRules) {
+        for (InferenceListener l : listeners) l.iterationEnded(iteration, firedRules);
+    }
+
+    @Override
+    public void goalsReached(Set<String> goals, int iteration) {
+        for (InferenceListener l : listeners) l.goalsReached(goals, iteration);
+    }
+
+    @Override
+    public void forwardChainingFailed(int iterations) {
+        for (InferenceListener l : listeners) l.forwardChainingFailed(iterations);
+    }
+
+    @Override
+    public void backwardChainingStarted(String goal) {
+        for (InferenceListener l : listeners) l.backwardChainingStarted(goal);
+    }
+
+    @Override
+    public void goalKnown(String goal, Object value) {
+        for (InferenceListener l : listeners) l.goalKnown(goal, value);
+    }
+
+    @Override
+    public void cycleDetected(String goal) {
+        for (InferenceListener l : listeners) l.cycleDetected(goal);
+    }
+
+    @Override
+    public void noRulesForGoal(String goal) {
+        for (InferenceListener l : listeners) l.noRulesForGoal(goal);
+    }
+
+    @Override
+    public void ruleTried(Rule rule, String goal) {
+        for (InferenceListener l : listeners) l.ruleTried(rule, goal);
+    }
+
+    @Override
+    public void ruleConditionsMet(Rule rule) {
+        for (InferenceListener l : listeners) l.ruleConditionsMet(rule);
+    }
+
+    @Override
+    public void goalFailed(String goal) {
+        for (InferenceListener l : listeners) l.goalFailed(goal);
+    }
+
+    @Override
+    public void goalFailedBefore(String goal) {
+        for (InferenceListener l : listeners) l.goalFailedBefore(goal);
+    }
+}
+
+// Текстовая трассировка вывода (прежний вывод в консоль)
+class ConsoleInferenceListener implements InferenceListener {
+    protected final PrintStream out;
+
+    ConsoleInferenceListener() {
+        this(System.out);
+    }
+
+    ConsoleInferenceListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void factSet(String name, Object value, Rule source) {
+        if (source == null) {
+            out.println("Факт установлен: " + name + " = " + value);
+        } else {
+            out.println(" Установлен факт: " + name + " = " + value);
+        }
+    }
+
+    @Override
+    public void factRetracted(String name) {
+        out.println("Факт отозван: " + name);
+    }
+
+    @Override
+    public void ruleFired(Rule rule) {
+        out.println("Применено правило: " + rule.name);
+    }
+
+    @Override
+    public void forwardChainingStarted() {
+        out.println("\nПРЯМОЙ ВЫВОД");
+    }
+
+    @Override
+    public void iterationStarted(int iteration) {
+        out.println("\nИтерация " + iteration);
+    }
+
+    @Override
+    public void conflictSetBuilt(int iteration, int conflictSetSize) {
+        out.println("Применимых правил: " + conflictSetSize);
+        if (conflictSetSize == 0) {
+            out.println("Нет применимых правил - остановка");
+        }
+    }
+
+    @Override
+    public void conflictResolved(int conflictSetSize, Rule selected) {
+        out.println("Конфликтное множество: " + conflictSetSize + " правил");
+    }
+
+    @Override
+    public void goalsReached(Set<String> goals, int iteration) {
+        out.println("Цели достигнуты на итерации " + iteration);
+    }
+
+    @Override
+    public void forwardChainingFailed(int iterations) {
+        out.println("Не удалось достичь целей за " + iterations + " итераций");
+    }
+
+    @Override
+    public void backwardChainingStarted(String goal) {
+        out.println("\nОБРАТНЫЙ ВЫВОД для цели: " + goal);
+    }
+
+    @Override
+    public void goalKnown(String goal, Object value) {
+        if (value == null) {
+            out.println("Факт '" + goal + "' установлен в null");
+        } else if (value instanceof Boolean b) {
+            out.println(b ? "Цель '" + goal + "' уже достигнута (true)"
+                    : "Цель '" + goal + "' установлена в false");
+        } else {
+            out.println("Факт '" + goal + "' уже установлен: " + value);
+        }
+    }
+
+    @Override
+    public void cycleDetected(String goal) {
+        out.println("Обнаружен цикл при проверке цели: " + goal);
+    }
+
+    @Override
+    public void noRulesForGoal(String goal) {
+        out.println("Нет правил для вывода цели: " + goal);
+    }
+
+    @Override
+    public void ruleTried(Rule rule, String goal) {
+        out.println("Пробуем правило: " + rule.name + " для цели: " + goal);
+    }
+
+    @Override
+    public void ruleConditionsMet(Rule rule) {
+        out.println("Все условия правила '" + rule.name + "' выполнены");
+    }
+
+    @Override
+    public void goalFailed(String goal) {
+        out.println("Не удалось достичь цели: " + goal);
+    }
+
+    @Override
+    public void goalFailedBefore(String goal) {
+        out.println("Цель '" + goal + "' уже не удалось вывести ранее");
+    }
+}
+
+// Та же трассировка в файл через буфер; сбрасывается при close()
+class FileInferenceListener extends ConsoleInferenceListener implements Closeable {
+
+    FileInferenceListener(Path path) throws IOException {
+        super(new PrintStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16),
+                false, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() {
+        out.close();
+    }
+}
+
+// Только счётчики, без форматирования
+class CountingInferenceListener implements InferenceListener {
+    long factsSet;
+    long rulesFired;
+    long iterations;
+    long conflictSetTotal;
+    long goalsReached;
+    long goalsFailed;
+
+    @Override
+    public void factSet(String name, Object value, Rule source) {
+        factsSet++;
+    }
+
+    @Override
+    public void ruleFired(Rule rule) {
+        rulesFired++;
+    }
+
+    @Override
+    public void iterationStarted(int iteration) {
+        iterations++;
+    }
+
+    @Override
+    public void conflictSetBuilt(int iteration, int conflictSetSize) {
+        conflictSetTotal += conflictSetSize;
+    }
+
+    @Override
+    public void goalsReached(Set<String> goals, int iteration) {
+        goalsReached++;
+    }
+
+    @Override
+    public void forwardChainingFailed(int iterations) {
+        goalsFailed++;
+    }
+
+    @Override
+    public String toString() {
+        return "фактов: " + factsSet + ", срабатываний: " + rulesFired
+                + ", итераций: " + iterations + ", суммарно в конфликтных множествах: " + conflictSetTotal
+                + ", целей достигнуто: " + goalsReached + ", не достигнуто: " + goalsFailed;
+    }
+}
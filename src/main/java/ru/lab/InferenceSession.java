@@ -0,0 +1,19 @@
+package ru.lab;
+
+import java.util.Map;
+import java.util.Set;
+
+// Общий интерфейс консультации прямым выводом: интерпретатор Session
+// и классы, сгенерированные EvaluatorProcessor, взаимозаменяемы.
+interface InferenceSession {
+
+    void setFact(String name, Object value);
+
+    Object getFact(String name);
+
+    boolean forwardChaining(Set<String> goals);
+
+    Map<String, Object> getWorkingMemory();
+
+    void printWorkingMemory();
+}
@@ -0,0 +1,136 @@
+package ru.lab;
+
+import java.util.*;
+
+// Скомпилированная неизменяемая база правил.
+// Строится один раз и разделяется любым числом сессий в разных потоках.
+final class KnowledgeBase {
+    private final List<Rule> rules;
+    private final FactTable facts;
+    private final List<CompiledRule> compiledRules;
+    private final int[][] producerIds;                // факт -> номера правил, которые его устанавливают
+    private final List<List<CompiledRule>> producers;
+    private final int[][] readers;                    // факт -> номера правил, которые его читают
+    private ConditionIndex conditionIndex;
+    private ReteNetwork reteNetwork;
+    private volatile RuleMetrics metrics;
+
+    KnowledgeBase(List<Rule> rules) {
+        this.rules = List.copyOf(rules);
+        this.facts = new FactTable();
+        List<CompiledRule> compiled = new ArrayList<>(rules.size());
+        for (Rule rule : this.rules) {
+            rule.compile();
+            compiled.add(new CompiledRule(rule, compiled.size(), facts));
+        }
+        this.compiledRules = List.copyOf(compiled);
+
+        List<Set<Integer>> producersByFact = new ArrayList<>(facts.size());
+        List<Set<Integer>> readersByFact = new ArrayList<>(facts.size());
+        for (int f = 0; f < facts.size(); f++) {
+            producersByFact.add(new LinkedHashSet<>());
+            readersByFact.add(new LinkedHashSet<>());
+        }
+        for (CompiledRule rule : compiledRules) {
+            for (int fact : rule.actionFacts) {
+                producersByFact.get(fact).add(rule.index);
+            }
+            for (int fact : rule.conditionFacts) {
+                readersByFact.get(fact).add(rule.index);
+            }
+        }
+        this.producerIds = toArrays(producersByFact);
+        this.readers = toArrays(readersByFact);
+        this.producers = producerLists();
+    }
+
+    // восстановление из снимка: номера фактов и индексы уже посчитаны
+    KnowledgeBase(List<Rule> rules, FactTable facts, int[][] conditionFacts, int[][] actionFacts,
+                  int[][] producerIds, int[][] readers) {
+        this.rules = List.copyOf(rules);
+        this.facts = facts;
+        CompiledRule[] compiled = new CompiledRule[rules.size()];
+        for (int i = 0; i < compiled.length; i++) {
+            compiled[i] = new CompiledRule(this.rules.get(i), i, conditionFacts[i], actionFacts[i]);
+        }
+        this.compiledRules = List.of(compiled);
+        this.producerIds = producerIds;
+        this.readers = readers;
+        this.producers = producerLists();
+    }
+
+    private static int[][] toArrays(List<Set<Integer>> sets) {
+        int[][] arrays = new int[sets.size()][];
+        for (int i = 0; i < arrays.length; i++) {
+            arrays[i] = sets.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return arrays;
+    }
+
+    private List<List<CompiledRule>> producerLists() {
+        List<List<CompiledRule>> lists = new ArrayList<>(producerIds.length);
+        for (int[] ids : producerIds) {
+            CompiledRule[] list = new CompiledRule[ids.length];
+            for (int i = 0; i < ids.length; i++) {
+                list[i] = compiledRules.get(ids[i]);
+            }
+            lists.add(List.of(list));
+        }
+        return lists;
+    }
+
+    List<Rule> rules() {
+        return rules;
+    }
+
+    List<CompiledRule> compiledRules() {
+        return compiledRules;
+    }
+
+    List<CompiledRule> producers(int factId) {
+        return producers.get(factId);
+    }
+
+    int[] producerIds(int factId) {
+        return producerIds[factId];
+    }
+
+    int[] readers(int factId) {
+        return readers[factId];
+    }
+
+    FactTable facts() {
+        return facts;
+    }
+
+    Session newSession() {
+        return new Session(this);
+    }
+
+    synchronized ConditionIndex conditionIndex() {
+        if (conditionIndex == null) {
+            conditionIndex = new ConditionIndex(compiledRules, facts.size());
+        }
+        return conditionIndex;
+    }
+
+    // счётчики включаются один раз и дальше собираются всеми сессиями базы
+    synchronized RuleMetrics enableMetrics() {
+        if (metrics == null) {
+            metrics = new RuleMetrics(compiledRules);
+        }
+        return metrics;
+    }
+
+    // null, если счётчики не включены
+    RuleMetrics metrics() {
+        return metrics;
+    }
+
+    synchronized ReteNetwork reteNetwork() {
+        if (reteNetwork == null) {
+            reteNetwork = new ReteNetwork(compiledRules, facts.size());
+        }
+        return reteNetwork;
+    }
+}
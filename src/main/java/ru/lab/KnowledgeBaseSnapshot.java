@@ -0,0 +1,233 @@
+package ru.lab;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Двоичный снимок скомпилированной базы правил.
+// Хранит таблицу фактов, правила с номерами фактов и индексы читателей/производителей,
+// так что при загрузке ничего не разбирается и не индексируется заново.
+//
+// Формат (big-endian):
+//   int magic, int version
+//   int n, n строк (int длина, UTF-8) - все имена и строковые значения
+//   int n, n номеров строк - имена фактов по порядку номеров
+//   int n, n правил: имя, приоритет, условия (факт, оператор, значение), действия (факт, значение)
+//   для каждого факта: производители, затем читатели (int n, n номеров правил)
+final class KnowledgeBaseSnapshot {
+    private static final int MAGIC = 0x5341494B; // "SAIK"
+    private static final int VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte INT = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte TRUE = 4;
+    private static final byte FALSE = 5;
+    private static final byte STRING = 6;
+    private static final byte LIST = 7;
+
+    private KnowledgeBaseSnapshot() {}
+
+    static void write(KnowledgeBase kb, Path path) throws IOException {
+        Map<String, Integer> strings = new LinkedHashMap<>();
+        FactTable facts = kb.facts();
+        for (int f = 0; f < facts.size(); f++) {
+            strings.putIfAbsent(facts.name(f), strings.size());
+        }
+        for (Rule rule : kb.rules()) {
+            strings.putIfAbsent(rule.name, strings.size());
+            for (Condition cond : rule.conditions) collectStrings(cond.expectedValue, strings);
+            for (Action action : rule.actions) collectStrings(action.value, strings);
+        }
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(path), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            out.writeInt(strings.size());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            out.writeInt(facts.size());
+            for (int f = 0; f < facts.size(); f++) {
+                out.writeInt(strings.get(facts.name(f)));
+            }
+
+            out.writeInt(kb.compiledRules().size());
+            for (CompiledRule compiled : kb.compiledRules()) {
+                Rule rule = compiled.rule;
+                out.writeInt(strings.get(rule.name));
+                out.writeInt(rule.priority);
+                out.writeInt(rule.conditions.size());
+                for (int i = 0; i < rule.conditions.size(); i++) {
+                    Condition cond = rule.conditions.get(i);
+                    out.writeInt(compiled.conditionFacts[i]);
+                    out.writeByte(cond.op.ordinal());
+                    writeValue(out, cond.expectedValue, strings);
+                }
+                out.writeInt(rule.actions.size());
+                for (int i = 0; i < rule.actions.size(); i++) {
+                    out.writeInt(compiled.actionFacts[i]);
+                    writeValue(out, rule.actions.get(i).value, strings);
+                }
+            }
+
+            for (int f = 0; f < facts.size(); f++) {
+                writeInts(out, kb.producerIds(f));
+                writeInts(out, kb.readers(f));
+            }
+        }
+    }
+
+    static KnowledgeBase read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return read(buffer);
+        }
+    }
+
+    static KnowledgeBase read(ByteBuffer in) throws IOException {
+        if (in.getInt() != MAGIC) throw new IOException("Не снимок базы правил");
+        int version = in.getInt();
+        if (version != VERSION) throw new IOException("Неподдерживаемая версия снимка: " + version);
+
+        String[] strings = new String[in.getInt()];
+        for (int i = 0; i < strings.length; i++) {
+            int length = in.getInt();
+            if (in.hasArray()) {
+                strings[i] = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+                in.position(in.position() + length);
+            } else {
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        FactTable facts = new FactTable();
+        int factCount = in.getInt();
+        for (int f = 0; f < factCount; f++) {
+            facts.intern(strings[in.getInt()]);
+        }
+
+        Operator[] operators = Operator.values();
+        int ruleCount = in.getInt();
+        List<Rule> rules = new ArrayList<>(ruleCount);
+        int[][] conditionFacts = new int[ruleCount][];
+        int[][] actionFacts = new int[ruleCount][];
+        for (int r = 0; r < ruleCount; r++) {
+            String name = strings[in.getInt()];
+            int priority = in.getInt();
+
+            int n = in.getInt();
+            List<Condition> conditions = new ArrayList<>(n);
+            conditionFacts[r] = new int[n];
+            for (int i = 0; i < n; i++) {
+                int fact = in.getInt();
+                conditionFacts[r][i] = fact;
+                Operator op = operators[in.get()];
+                Condition cond = new Condition(facts.name(fact), op.symbol, readValue(in, strings));
+                cond.compile();
+                conditions.add(cond);
+            }
+
+            int m = in.getInt();
+            List<Action> actions = new ArrayList<>(m);
+            actionFacts[r] = new int[m];
+            for (int i = 0; i < m; i++) {
+                int fact = in.getInt();
+                actionFacts[r][i] = fact;
+                actions.add(new Action(facts.name(fact), readValue(in, strings)));
+            }
+            rules.add(new Rule(name, conditions, actions, priority));
+        }
+
+        int[][] producers = new int[factCount][];
+        int[][] readers = new int[factCount][];
+        for (int f = 0; f < factCount; f++) {
+            producers[f] = readInts(in);
+            readers[f] = readInts(in);
+        }
+        return new KnowledgeBase(rules, facts, conditionFacts, actionFacts, producers, readers);
+    }
+
+    private static void collectStrings(Object value, Map<String, Integer> strings) {
+        if (value instanceof String s) {
+            strings.putIfAbsent(s, strings.size());
+        } else if (value instanceof Collection<?> collection) {
+            for (Object item : collection) collectStrings(item, strings);
+        } else if (value instanceof Object[] array) {
+            for (Object item : array) collectStrings(item, strings);
+        }
+    }
+
+    private static void writeValue(DataOutputStream out, Object value, Map<String, Integer> strings) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INT);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Double d) {
+            out.writeByte(DOUBLE);
+            out.writeDouble(d);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(b ? TRUE : FALSE);
+        } else if (value instanceof String s) {
+            out.writeByte(STRING);
+            out.writeInt(strings.get(s));
+        } else if (value instanceof Collection<?> || value instanceof Object[]) {
+            Collection<?> items = value instanceof Object[] array ? Arrays.asList(array) : (Collection<?>) value;
+            out.writeByte(LIST);
+            out.writeInt(items.size());
+            for (Object item : items) writeValue(out, item, strings);
+        } else {
+            throw new IllegalArgumentException("Значение не поддерживается снимком: " + value);
+        }
+    }
+
+    private static Object readValue(ByteBuffer in, String[] strings) throws IOException {
+        byte tag = in.get();
+        return switch (tag) {
+            case NULL -> null;
+            case INT -> in.getInt();
+            case LONG -> in.getLong();
+            case DOUBLE -> in.getDouble();
+            case TRUE -> Boolean.TRUE;
+            case FALSE -> Boolean.FALSE;
+            case STRING -> strings[in.getInt()];
+            case LIST -> {
+                int n = in.getInt();
+                Object[] items = new Object[n];
+                for (int i = 0; i < n; i++) items[i] = readValue(in, strings);
+                yield Arrays.asList(items);
+            }
+            default -> throw new IOException("Повреждённый снимок: тег значения " + tag);
+        };
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int v : values) out.writeInt(v);
+    }
+
+    private static int[] readInts(ByteBuffer in) {
+        int[] values = new int[in.getInt()];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return values;
+    }
+}
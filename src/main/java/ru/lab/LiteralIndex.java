@@ -0,0 +1,127 @@
+package ru.lab;
+
+import ru.lab.ResolutionMethod.Clause;
+
+import java.util.*;
+
+// Индекс дизъюнктов по литералам: литерал -> дизъюнкты, где он встречается,
+// и отдельно по наименьшему литералу дизъюнкта. Партнёры по резолюции для
+// литерала l - дизъюнкты из clausesWith(l ^ 1); поглотитель дизъюнкта C
+// обязан начинаться с одного из литералов C, а поглощённый им - содержать
+// любой литерал C, поэтому в обоих случаях просматриваются только списки индекса.
+final class LiteralIndex {
+    private List<Clause>[] occurrences = newLists(16);
+    private List<Clause>[] byFirst = newLists(16);
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Clause>[] newLists(int length) {
+        return new List[length];
+    }
+
+    void add(Clause clause) {
+        for (int literal : clause.literals) {
+            list(literal, true).add(clause);
+        }
+        if (!clause.isEmpty()) {
+            firstList(clause.literals[0], true).add(clause);
+        }
+        size++;
+    }
+
+    void remove(Clause clause) {
+        for (int literal : clause.literals) {
+            removeIdentical(list(literal, false), clause);
+        }
+        if (!clause.isEmpty()) {
+            removeIdentical(firstList(clause.literals[0], false), clause);
+        }
+        size--;
+    }
+
+    private static void removeIdentical(List<Clause> list, Clause clause) {
+        for (int i = list.size() - 1; i >= 0; i--) {
+            if (list.get(i) == clause) {
+                list.remove(i);
+                return;
+            }
+        }
+    }
+
+    // не изменяйте индекс, пока обходите список
+    List<Clause> clausesWith(int literal) {
+        List<Clause> list = list(literal, false);
+        return list != null ? list : List.of();
+    }
+
+    // дизъюнкт индекса, поглощающий clause, или null
+    Clause subsumer(Clause clause) {
+        for (int literal : clause.literals) {
+            List<Clause> candidates = firstList(literal, false);
+            if (candidates == null) continue;
+            for (Clause candidate : candidates) {
+                if (candidate.subsumes(clause)) {
+                    return candidate;
+                }
+            }
+        }
+        return null;
+    }
+
+    // дизъюнкты индекса, поглощённые clause
+    List<Clause> subsumedBy(Clause clause) {
+        List<Clause> shortest = null;
+        for (int literal : clause.literals) {
+            List<Clause> list = clausesWith(literal);
+            if (shortest == null || list.size() < shortest.size()) {
+                shortest = list;
+            }
+        }
+        List<Clause> result = new ArrayList<>();
+        if (shortest != null) {
+            for (Clause candidate : shortest) {
+                if (clause.subsumes(candidate)) {
+                    result.add(candidate);
+                }
+            }
+        }
+        return result;
+    }
+
+    int size() {
+        return size;
+    }
+
+    // все непустые дизъюнкты индекса: каждый лежит ровно в одном списке byFirst
+    List<Clause> clauses() {
+        List<Clause> result = new ArrayList<>(size);
+        for (List<Clause> list : byFirst) {
+            if (list != null) {
+                result.addAll(list);
+            }
+        }
+        return result;
+    }
+
+    private List<Clause> list(int literal, boolean create) {
+        if (literal >= occurrences.length) {
+            if (!create) return null;
+            occurrences = Arrays.copyOf(occurrences, Math.max(literal + 1, occurrences.length * 2));
+        }
+        if (occurrences[literal] == null && create) {
+            occurrences[literal] = new ArrayList<>();
+        }
+        return occurrences[literal];
+    }
+
+    private List<Clause> firstList(int literal, boolean create) {
+        if (literal >= byFirst.length) {
+            if (!create) return null;
+            byFirst = Arrays.copyOf(byFirst, Math.max(literal + 1, byFirst.length * 2));
+        }
+        if (byFirst[literal] == null && create) {
+            byFirst[literal] = new ArrayList<>();
+        }
+        return byFirst[literal];
+    }
+}
@@ -0,0 +1,48 @@
+package ru.lab;
+
+// Счётчики работы сопоставления, общие для всех RuleMatcher
+class MatchStats {
+    long iterations;           // построений множества применимых правил
+    long ruleChecks;           // полных проверок правила
+    long conditionEvaluations; // проверок условий
+    RuleMetrics metrics;       // счётчики базы правил; null - выключены
+
+    boolean isApplicable(CompiledRule rule, WorkingMemory workingMemory) {
+        ruleChecks++;
+        for (int i = 0; i < rule.predicates.length; i++) {
+            conditionEvaluations++;
+            boolean passed = workingMemory.test(rule.conditionFacts[i], rule.predicates[i]);
+            if (metrics != null) {
+                metrics.conditionEvaluated(metrics.condition(rule.index, i), passed);
+            }
+            if (!passed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    double conditionEvaluationsPerIteration() {
+        return iterations == 0 ? 0 : (double) conditionEvaluations / iterations;
+    }
+
+    void add(MatchStats other) {
+        iterations += other.iterations;
+        ruleChecks += other.ruleChecks;
+        conditionEvaluations += other.conditionEvaluations;
+    }
+
+    void reset() {
+        iterations = 0;
+        ruleChecks = 0;
+        conditionEvaluations = 0;
+    }
+
+    @Override
+    public String toString() {
+        return "итераций: " + iterations
+                + ", проверок правил: " + ruleChecks
+                + ", вычислений условий: " + conditionEvaluations
+                + String.format(" (%.1f на итерацию)", conditionEvaluationsPerIteration());
+    }
+}
@@ -1,5 +1,7 @@
 package ru.lab;
 
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 
@@ -16,6 +18,8 @@ class Condition {
     String factName;
     String operator; // "=", "!=", ">", "<", ">=", "<=", "in", "contains", "startsWith", "endsWith", "matches"
     Object expectedValue;
+    Operator op;
+    private ConditionPredicate predicate;
 
     Condition(String factName, String operator, Object expectedValue) {
         this.factName = factName;
@@ -23,76 +27,22 @@ class Condition {
         this.expectedValue = expectedValue;
     }
 
-    boolean evaluate(Map<String, Object> workingMemory) {
-        Object actualValue = workingMemory.get(factName);
-        if (actualValue == null) return false;
-
-        return switch (operator) {
-            case "=" -> actualValue.equals(expectedValue);
-            case "!=" -> !actualValue.equals(expectedValue);
-            case ">" -> compareNumbers(actualValue, expectedValue) > 0;
-            case "<" -> compareNumbers(actualValue, expectedValue) < 0;
-            case ">=" -> compareNumbers(actualValue, expectedValue) >= 0;
-            case "<=" -> compareNumbers(actualValue, expectedValue) <= 0;
-            case "in" -> checkInCollection(actualValue, expectedValue);
-            case "contains" -> checkContains(actualValue, expectedValue);
-            case "startsWith" -> checkStartsWith(actualValue, expectedValue);
-            case "endsWith" -> checkEndsWith(actualValue, expectedValue);
-            case "matches" -> checkMatches(actualValue, expectedValue);
-            case "exists" -> true;
-            case "not_exists" -> false;
-            default -> false;
-        };
-    }
-
-    private int compareNumbers(Object a, Object b) {
-        if (a instanceof Number && b instanceof Number) {
-            double aVal = ((Number) a).doubleValue();
-            double bVal = ((Number) b).doubleValue();
-            return Double.compare(aVal, bVal);
-        }
-        return 0;
+    // разбор оператора и подготовка предиката; неизвестный оператор - ошибка
+    void compile() {
+        op = Operator.fromSymbol(operator);
+        predicate = ConditionPredicate.compile(op, expectedValue);
     }
 
-    private boolean checkInCollection(Object actual, Object expected) {
-        if (expected instanceof Collection) {
-            return ((Collection<?>) expected).contains(actual);
-        }
-        if (expected instanceof Object[]) {
-            return Arrays.asList((Object[]) expected).contains(actual);
-        }
-        return false;
-    }
-
-    private boolean checkContains(Object actual, Object expected) {
-        if (actual instanceof String && expected instanceof String) {
-            return ((String) actual).contains((String) expected);
-        }
-        if (actual instanceof Collection) {
-            return ((Collection<?>) actual).contains(expected);
-        }
-        return false;
+    ConditionPredicate predicate() {
+        if (predicate == null) compile();
+        return predicate;
     }
 
-    private boolean checkStartsWith(Object actual, Object expected) {
-        if (actual instanceof String && expected instanceof String) {
-            return ((String) actual).startsWith((String) expected);
-        }
-        return false;
-    }
-
-    private boolean checkEndsWith(Object actual, Object expected) {
-        if (actual instanceof String && expected instanceof String) {
-            return ((String) actual).endsWith((String) expected);
-        }
-        return false;
-    }
+    boolean evaluate(Map<String, Object> workingMemory) {
+        Object actualValue = workingMemory.get(factName);
+        if (actualValue == null) return false;
 
-    private boolean checkMatches(Object actual, Object expected) {
-        if (actual instanceof String && expected instanceof String) {
-            return ((String) actual).matches((String) expected);
-        }
-        return false;
+        return predicate().test(actualValue);
     }
 
     @Override
@@ -112,7 +62,6 @@ class Action {
 
     void execute(Map<String, Object> workingMemory) {
         workingMemory.put(factName, value);
-        System.out.println(" Установлен факт: " + factName + " = " + value);
     }
 }
 
@@ -129,6 +78,12 @@ class Rule {
         this.priority = priority;
     }
 
+    void compile() {
+        for (Condition cond : conditions) {
+            cond.compile();
+        }
+    }
+
     boolean isApplicable(Map<String, Object> workingMemory) {
         for (Condition cond : conditions) {
             if (!cond.evaluate(workingMemory)) {
@@ -139,7 +94,6 @@ class Rule {
     }
 
     void execute(Map<String, Object> workingMemory) {
-        System.out.println("Применено правило: " + name);
         for (Action action : actions) {
             action.execute(workingMemory);
         }
@@ -150,183 +104,158 @@ enum ConflictResolutionStrategy {
     FIRST_MATCH,      // первое подходящее
     HIGHEST_PRIORITY, // наивысший приоритет
     MOST_SPECIFIC,    // наиболее специфичное (больше условий)
-    RANDOM           // случайный выбор
+    RANDOM,           // случайный выбор
+    RECENCY,          // условия на самых свежих фактах
+    LEX,              // OPS5 LEX: свежесть всех фактов условий, затем специфичность
+    MEA,              // OPS5 MEA: свежесть факта первого условия, затем LEX
+    SALIENCE_SPECIFICITY // приоритет, затем специфичность
 }
 
+enum MatchingEngine {
+    SCAN,    // перебор всех правил на каждой итерации
+    INDEXED, // перепроверка только условий на изменённых фактах
+    RETE     // инкрементальная Rete-сеть
+}
+
+// Изменяемая база правил с одной сессией по умолчанию.
+// Для параллельных консультаций используйте compile() и KnowledgeBase.newSession().
 class ProductionSystem {
     private final List<Rule> rules = new ArrayList<>();
-    private final Map<String, Object> workingMemory = new HashMap<>();
-    private ConflictResolutionStrategy strategy = ConflictResolutionStrategy.FIRST_MATCH;
+    private KnowledgeBase knowledgeBase;
+    private Session session;
+    private boolean metricsEnabled;
+    private ConsultationCache consultationCache;
 
     public void addRule(Rule rule) {
+        rule.compile();
         rules.add(rule);
+        knowledgeBase = null;
+        if (consultationCache != null) {
+            consultationCache.invalidate();
+        }
     }
 
-    public void setFact(String name, Object value) {
-        workingMemory.put(name, value);
-        System.out.println("Факт установлен: " + name + " = " + value);
-    }
-
-    public boolean forwardChaining(Set<String> goals) {
-        System.out.println("\nПРЯМОЙ ВЫВОД");
-        int iteration = 0;
-
-        List<Rule> availableRules = new ArrayList<>(rules);
-
-        while (iteration < 100) {
-            iteration++;
-            System.out.println("\nИтерация " + iteration);
-
-            List<Rule> applicableRules = new ArrayList<>();
-            for (Rule rule : availableRules) {
-                if (rule.isApplicable(workingMemory)) {
-                    applicableRules.add(rule);
-                }
+    public KnowledgeBase compile() {
+        if (knowledgeBase == null) {
+            knowledgeBase = new KnowledgeBase(rules);
+            if (metricsEnabled) {
+                knowledgeBase.enableMetrics();
             }
+        }
+        return knowledgeBase;
+    }
 
-            System.out.println("Применимых правил: " + applicableRules.size());
-
-            if (applicableRules.isEmpty()) {
-                System.out.println("Нет применимых правил - остановка");
-                break;
-            }
+    private Session session() {
+        KnowledgeBase kb = compile();
+        if (session == null) {
+            session = kb.newSession();
+        } else if (session.knowledgeBase() != kb) {
+            session = new Session(kb, session);
+        }
+        return session;
+    }
 
-            while (!applicableRules.isEmpty()) {
-                Rule selectedRule = resolveConflict(applicableRules);
+    public void setFact(String name, Object value) {
+        session().setFact(name, value);
+    }
 
-                selectedRule.execute(workingMemory);
+    public void retractFact(String name) {
+        session().retractFact(name);
+    }
 
-                availableRules.remove(selectedRule);
-                applicableRules.remove(selectedRule);
+    public void modifyFact(String name, Object value) {
+        session().modifyFact(name, value);
+    }
 
-                if (goalsAchieved(goals)) {
-                    System.out.println("Цели достигнуты на итерации " + iteration);
-                    return true;
-                }
-            }
-        }
+    public boolean forwardChaining(Set<String> goals) {
+        return session().forwardChaining(goals);
+    }
 
-        System.out.println("Не удалось достичь целей за " + iteration + " итераций");
-        return false;
+    public boolean propagate(Set<String> goals) {
+        return session().propagate(goals);
     }
 
     public boolean backwardChaining(String goal) {
-        System.out.println("\nОБРАТНЫЙ ВЫВОД для цели: " + goal);
-        return backwardChainingRecursive(goal, new HashSet<>());
-    }
-
-    private boolean backwardChainingRecursive(String goal, Set<String> visited) {
-        if (workingMemory.containsKey(goal)) {
-            Object value = workingMemory.get(goal);
-            if (value != null) {
-                if (value instanceof Boolean) {
-                    if ((Boolean) value) {
-                        System.out.println("Цель '" + goal + "' уже достигнута (true)");
-                        return true;
-                    } else {
-                        System.out.println("Цель '" + goal + "' установлена в false");
-                        return false;
-                    }
-                }
-                System.out.println("Факт '" + goal + "' уже установлен: " + value);
-                return true;
-            }
-            System.out.println("Факт '" + goal + "' установлен в null");
-            return false;
-        }
-
+        return session().backwardChaining(goal);
+    }
 
-        if (visited.contains(goal)) {
-            System.out.println("Обнаружен цикл при проверке цели: " + goal);
-            return false;
-        }
-        visited.add(goal);
-
-        List<Rule> rulesProducingGoal = new ArrayList<>();
-        for (Rule rule : rules) {
-            for (Action action : rule.actions) {
-                if (action.factName.equals(goal)) {
-                    rulesProducingGoal.add(rule);
-                    break;
-                }
-            }
-        }
+    public void setStrategy(ConflictResolutionStrategy strategy) {
+        session().setStrategy(strategy);
+    }
 
-        if (rulesProducingGoal.isEmpty()) {
-            System.out.println("Нет правил для вывода цели: " + goal);
-            return false;
-        }
+    public void setMatchingEngine(MatchingEngine matchingEngine) {
+        session().setMatchingEngine(matchingEngine);
+    }
 
-        for (Rule rule : rulesProducingGoal) {
-            System.out.println("Пробуем правило: " + rule.name + " для цели: " + goal);
+    public void setRandomSeed(long seed) {
+        session().setRandomSeed(seed);
+    }
 
-            boolean allConditionsMet = true;
-            for (Condition cond : rule.conditions) {
-                if (!backwardChainingRecursive(cond.factName, visited)) {
-                    allConditionsMet = false;
-                    break;
-                }
-            }
+    public void setParallelThreshold(int parallelThreshold) {
+        session().setParallelThreshold(parallelThreshold);
+    }
 
-            if (allConditionsMet) {
-                System.out.println("Все условия правила '" + rule.name + "' выполнены");
-                rule.execute(workingMemory);
-                return true;
-            }
-        }
+    public void addListener(InferenceListener listener) {
+        session().addListener(listener);
+    }
 
-        System.out.println("Не удалось достичь цели: " + goal);
-        return false;
+    // Потоковая сессия над текущей базой правил, независимая от сессии по умолчанию
+    public StreamingSession streamingSession(int capacity, int maxBatch, long defaultTimeToLive) {
+        return new StreamingSession(compile(), capacity, maxBatch, defaultTimeToLive);
     }
 
-    private Rule resolveConflict(List<Rule> applicableRules) {
-        System.out.println("Конфликтное множество: " + applicableRules.size() + " правил");
+    // Дерево решений для консультаций, где все входные факты заданы заранее
+    public DiscriminationTree compileTree(ConflictResolutionStrategy strategy, Set<String> goals) {
+        return DiscriminationTree.compile(compile(), strategy, goals);
+    }
 
-        return switch (strategy) {
-            case FIRST_MATCH -> applicableRules.get(0);
-            case HIGHEST_PRIORITY -> Collections.max(applicableRules,
-                    Comparator.comparingInt(r -> r.priority));
-            case MOST_SPECIFIC -> Collections.max(applicableRules,
-                    Comparator.comparingInt(r -> r.conditions.size()));
-            case RANDOM -> applicableRules.get(new Random().nextInt(applicableRules.size()));
-            default -> applicableRules.get(0);
-        };
+    // Кэш для consult; вес - суммарное число фактов, записанных правилами, в записях кэша
+    public ConsultationCache enableConsultationCache(int maxEntries, long maxWeight) {
+        consultationCache = new ConsultationCache(maxEntries, maxWeight);
+        return consultationCache;
     }
 
-    private boolean goalsAchieved(Set<String> goals) {
-        for (String goal : goals) {
-            if (!workingMemory.containsKey(goal)) {
-                return false;
-            }
+    // Консультация в отдельной сессии со стратегией и механизмом сопоставления сессии по умолчанию;
+    // рабочая память сессии по умолчанию не меняется
+    public ConsultationResult consult(Map<String, Object> facts, Set<String> goals) {
+        Session defaults = session();
+        if (consultationCache != null) {
+            return consultationCache.consult(compile(), facts, goals, defaults.strategy(), defaults.matchingEngine());
+        }
+        Session consultation = compile().newSession();
+        consultation.setStrategy(defaults.strategy());
+        consultation.setMatchingEngine(defaults.matchingEngine());
+        facts.forEach(consultation::setFact);
+        boolean reached = consultation.forwardChaining(goals);
+        return new ConsultationResult(consultation.getWorkingMemory(), reached);
+    }
 
-            Object value = workingMemory.get(goal);
-            if (value == null) {
-                return false;
-            }
+    public MatchStats getMatchStats() {
+        return session().getMatchStats();
+    }
 
-            if (value instanceof Boolean && !(Boolean) value) {
-                return false;
-            }
-        }
-        return true;
+    // Счётчики текущей базы правил; после addRule база пересобирается
+    // с новыми нулевыми счётчиками, и их нужно запросить заново
+    public RuleMetrics enableMetrics() {
+        metricsEnabled = true;
+        return compile().enableMetrics();
     }
 
-    public void setStrategy(ConflictResolutionStrategy strategy) {
-        this.strategy = strategy;
+    public Map<String, Object> getWorkingMemory() {
+        return session().getWorkingMemory();
     }
 
     public void printWorkingMemory() {
-        System.out.println("\n=== РАБОЧАЯ ПАМЯТЬ ===");
-        for (Map.Entry<String, Object> entry : workingMemory.entrySet()) {
-            System.out.println(entry.getKey() + " = " + entry.getValue());
-        }
+        session().printWorkingMemory();
     }
 }
 
+@GenerateEvaluator(rules = "cpu_rules.rules", className = "CpuAdvisorEvaluator")
 public class ProductionSystemLab {
     public static void main(String[] args) {
         ProductionSystem cpuAdvisor = new ProductionSystem();
         cpuAdvisor.setStrategy(ConflictResolutionStrategy.HIGHEST_PRIORITY);
+        cpuAdvisor.addListener(new ConsoleInferenceListener());
 
         loadCPURules(cpuAdvisor);
 
@@ -349,240 +278,19 @@ public class ProductionSystemLab {
         cpuAdvisor.printWorkingMemory();
 
         System.out.println("\nПРОВЕРКА ОБРАТНЫМ ВЫВОДОМ");
-        cpuAdvisor.setFact("рекомендация_cpu", null);
+        cpuAdvisor.retractFact("рекомендация_cpu");
 
         cpuAdvisor.backwardChaining("рекомендация_cpu");
     }
 
-    private static void loadCPURules(ProductionSystem system) {
-
-        system.addRule(new Rule("Бюджет для начального уровня",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_начальный"),
-                        new Condition("бюджет_руб", ">=", 15000),
-                        new Condition("бюджет_руб", "<=", 30000)
-                ),
-                List.of(
-                        new Action("бюджет_достаточный", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Бюджет для среднего уровня",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_средний"),
-                        new Condition("бюджет_руб", ">=", 25000),
-                        new Condition("бюджет_руб", "<=", 60000)
-                ),
-                List.of(
-                        new Action("бюджет_достаточный", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Бюджет для топового уровня",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_топовый"),
-                        new Condition("бюджет_руб", ">=", 50000)
-                ),
-                List.of(
-                        new Action("бюджет_достаточный", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Определить игровую задачу",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "игры"),
-                        new Condition("требуемая_производительность", "=", "минимальная")
-                ),
-                Arrays.asList(
-                        new Action("требуемая_категория", "игровой_начальный"),
-                        new Action("задача_определена", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Игры среднего уровня",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "игры"),
-                        new Condition("требуемая_производительность", "=", "средняя"),
-                        new Condition("бюджет_руб", ">=", 25000)
-                ),
-                Arrays.asList(
-                        new Action("требуемая_категория", "игровой_средний"),
-                        new Action("задача_определена", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Профессиональные игры",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "игры"),
-                        new Condition("требуемая_производительность", "=", "высокая"),
-                        new Condition("бюджет_руб", ">=", 50000)
-                ),
-                Arrays.asList(
-                        new Action("требуемая_категория", "игровой_топовый"),
-                        new Action("задача_определена", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Офисные задачи",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "работа"),
-                        new Condition("требуемая_производительность", "=", "минимальная")
-                ),
-                Arrays.asList(
-                        new Action("требуемая_категория", "офисный"),
-                        new Action("задача_определена", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Программирование/дизайн",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "работа"),
-                        new Condition("требуемая_производительность", "=", "средняя"),
-                        new Condition("потребность_многопоточность", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("требуемая_категория", "рабочая_станция"),
-                        new Action("задача_определена", true)
-                ),
-                3));
-
-        system.addRule(new Rule("Рендеринг/моделирование",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "работа"),
-                        new Condition("требуемая_производительность", "=", "высокая"),
-                        new Condition("потребность_многопоточность", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("требуемая_категория", "профессиональный"),
-                        new Action("задача_определена", true)
-                ),
-                3));
-
-
-        system.addRule(new Rule("Бюджет слишком мал",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "in",
-                                Arrays.asList("игровой_топовый", "профессиональный")),
-                        new Condition("бюджет_руб", "<", 40000)
-                ),
-                Arrays.asList(
-                        new Action("бюджет_достаточный", false)
-                ),
-                1));
-
-        system.addRule(new Rule("Бюджет подходит",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_начальный"),
-                        new Condition("бюджет_руб", ">=", 15000)
-                ),
-                Arrays.asList(
-                        new Action("бюджет_достаточный", true)
-                ),
-                1));
-
-
-        system.addRule(new Rule("Рекомендовать AMD Ryzen 5 для игр",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_начальный"),
-                        new Condition("бюджет_достаточный", "=", true),
-                        new Condition("энергоэффективность_важна", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "AMD Ryzen 5 7600"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                3));
-
-        system.addRule(new Rule("Рекомендовать Intel i3 для начального уровня",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_начальный"),
-                        new Condition("бюджет_достаточный", "=", true),
-                        new Condition("интегрированная_графика_нужна", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "Intel Core i3-12100"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                3));
-
-        system.addRule(new Rule("Рекомендовать i5 для средних игр",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_средний"),
-                        new Condition("бюджет_достаточный", "=", true),
-                        new Condition("совместимость_сокет", "=", "LGA1700")
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "Intel Core i5-13400F"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                4));
-
-        system.addRule(new Rule("Рекомендовать Ryzen 5 для AM5",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_средний"),
-                        new Condition("бюджет_достаточный", "=", true),
-                        new Condition("совместимость_сокет", "=", "AM5")
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "AMD Ryzen 5 7600X"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                4));
-
-        system.addRule(new Rule("Рекомендовать i7 для требовательных игр",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "игровой_топовый"),
-                        new Condition("бюджет_достаточный", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "Intel Core i7-14700K"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                5));
-
-        system.addRule(new Rule("Рекомендовать Pentium Gold для офиса",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "офисный"),
-                        new Condition("интегрированная_графика_нужна", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "Intel Pentium Gold G7400"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                2));
-
-        system.addRule(new Rule("Рекомендовать Ryzen 7 для работы",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "рабочая_станция"),
-                        new Condition("потребность_многопоточность", "=", true)
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "AMD Ryzen 7 9700X"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                4));
-
-        system.addRule(new Rule("Рекомендовать Threadripper",
-                Arrays.asList(
-                        new Condition("требуемая_категория", "=", "профессиональный"),
-                        new Condition("бюджет_руб", ">=", 100000)
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "AMD Ryzen Threadripper 9960X"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                5));
-
-        system.addRule(new Rule("Рекомендовать Apple M4",
-                Arrays.asList(
-                        new Condition("тип_задачи", "=", "работа"),
-                        new Condition("энергоэффективность_важна", "=", true),
-                        new Condition("требуемая_производительность", "=", "высокая")
-                ),
-                Arrays.asList(
-                        new Action("рекомендация_cpu", "Apple M4 Pro"),
-                        new Action("бюджет_подходящий", true)
-                ),
-                3));
-    }
-}
\ No newline at end of file
+    static void loadCPURules(ProductionSystem system) {
+        try (InputStream in = ProductionSystemLab.class.getResourceAsStream("cpu_rules.rules")) {
+            if (in == null) {
+                throw new IllegalStateException("Не найден файл правил cpu_rules.rules");
+            }
+            new RuleFileParser(system::addRule).parse(new InputStreamReader(in, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
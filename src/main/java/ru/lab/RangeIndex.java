@@ -0,0 +1,92 @@
+package ru.lab;
+
+import java.util.*;
+
+// Пороговые условия (>, <, >=, <=) одного факта, отсортированные по порогу.
+// Нижние границы (>, >=) выполняются на префиксе своего массива, верхние (<, <=) -
+// на суффиксе, поэтому числовое значение находит их двоичным поиском за O(log n),
+// а при смене значения меняются состояния только условий между старой и новой границей.
+// Пороги сравниваются через Double.compare, как в NumericPredicate.
+final class RangeIndex {
+    final int[] lower;              // номера условий в ConditionIndex
+    final double[] lowerThreshold;  // по возрастанию; при равном пороге >= раньше >
+    final boolean[] lowerStrict;
+    final int[] upper;
+    final double[] upperThreshold;  // по возрастанию; при равном пороге < раньше <=
+    final boolean[] upperStrict;
+
+    RangeIndex(List<Integer> conditions, ConditionPredicate[] predicates) {
+        List<Integer> lowerList = new ArrayList<>();
+        List<Integer> upperList = new ArrayList<>();
+        for (int c : conditions) {
+            if (predicates[c] instanceof GreaterPredicate || predicates[c] instanceof GreaterOrEqualPredicate) {
+                lowerList.add(c);
+            } else {
+                upperList.add(c);
+            }
+        }
+        lowerList.sort(Comparator.<Integer>comparingDouble(c -> threshold(predicates, c))
+                .thenComparing(c -> predicates[c] instanceof GreaterPredicate));
+        upperList.sort(Comparator.<Integer>comparingDouble(c -> threshold(predicates, c))
+                .thenComparing(c -> predicates[c] instanceof LessOrEqualPredicate));
+
+        lower = toArray(lowerList);
+        lowerThreshold = new double[lower.length];
+        lowerStrict = new boolean[lower.length];
+        for (int i = 0; i < lower.length; i++) {
+            lowerThreshold[i] = threshold(predicates, lower[i]);
+            lowerStrict[i] = predicates[lower[i]] instanceof GreaterPredicate;
+        }
+        upper = toArray(upperList);
+        upperThreshold = new double[upper.length];
+        upperStrict = new boolean[upper.length];
+        for (int i = 0; i < upper.length; i++) {
+            upperThreshold[i] = threshold(predicates, upper[i]);
+            upperStrict[i] = predicates[upper[i]] instanceof LessPredicate;
+        }
+    }
+
+    static boolean isRange(ConditionPredicate predicate) {
+        return predicate instanceof NumericPredicate;
+    }
+
+    private static double threshold(ConditionPredicate[] predicates, int c) {
+        return ((NumericPredicate) predicates[c]).threshold;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        return list.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    // число нижних границ, выполненных значением: они занимают lower[0 .. n)
+    int lowerSatisfied(double value) {
+        int lo = 0;
+        int hi = lower.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Double.compare(value, lowerThreshold[mid]);
+            if (cmp > 0 || (cmp == 0 && !lowerStrict[mid])) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // первая верхняя граница, выполненная значением: они занимают upper[n ..]
+    int upperSatisfiedFrom(double value) {
+        int lo = 0;
+        int hi = upper.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = Double.compare(value, upperThreshold[mid]);
+            if (cmp < 0 || (cmp == 0 && !upperStrict[mid])) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+}
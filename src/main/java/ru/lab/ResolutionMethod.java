@@ -1,81 +1,264 @@
 package ru.lab;
 
+import java.lang.ref.WeakReference;
 import java.util.*;
 
 public class ResolutionMethod {
 
-    static class Clause {
-        Set<String> positive = new HashSet<>();
-        Set<String> negative = new HashSet<>();
-
-        Clause() {}
+    enum Engine {
+        PAIRWISE,         // перебор пар дизъюнктов по индексу литералов, resolution()
+        GIVEN_CLAUSE,     // насыщение с поглощением, GivenClauseProver
+        GIVEN_CLAUSE_SOS, // то же с set-of-support: быстрее, но только для непротиворечивой базы знаний
+        CDCL              // проверка выполнимости с обучением на конфликтах, CdclSolver
+    }
 
-        Clause(String[] pos, String[] neg) {
-            positive.addAll(Arrays.asList(pos));
-            negative.addAll(Arrays.asList(neg));
+    // Номера атомов, общие для всех дизъюнктов: имя переменной -> int
+    static final class Atoms {
+        private static final Map<String, Integer> ids = new HashMap<>();
+        // null - номер выдан вспомогательной переменной или свободен
+        private static final List<String> names = new ArrayList<>();
+        // начала освобождённых блоков вспомогательных номеров
+        private static final Deque<Integer> freeBlocks = new ArrayDeque<>();
+        private static final int BLOCK = 64;
+
+        private Atoms() {}
+
+        static synchronized int intern(String name) {
+            Integer id = ids.get(name);
+            if (id == null) {
+                id = names.size();
+                ids.put(name, id);
+                names.add(name);
+            }
+            return id;
         }
 
-        boolean isEmpty() {
-            return positive.isEmpty() && negative.isEmpty();
+        static synchronized String name(int atom) {
+            String name = names.get(atom);
+            return name != null ? name : "#" + atom;
         }
 
-        boolean isTautology() {
-            for (String p : positive) {
-                if (negative.contains(p)) return true;
+        private static synchronized int reserveBlock() {
+            Integer start = freeBlocks.poll();
+            if (start != null) return start;
+            int id = names.size();
+            for (int i = 0; i < BLOCK; i++) {
+                names.add(null);
             }
-            return false;
+            return id;
         }
 
-        Clause resolveWith(Clause other) {
-            for (String literal : this.positive) {
-                if (other.negative.contains(literal)) {
-                    return merge(this, other, literal, true);
+        private static synchronized void setName(int atom, String name) {
+            names.set(atom, name);
+        }
+
+        private static synchronized void releaseBlocks(List<Integer> blocks) {
+            for (int start : blocks) {
+                for (int i = start; i < start + BLOCK; i++) {
+                    names.set(i, null);
                 }
+                freeBlocks.push(start);
             }
+        }
 
-            for (String literal : this.negative) {
-                if (other.positive.contains(literal)) {
-                    return merge(this, other, literal, false);
+        // Вспомогательные атомы одной задачи (переменные-определения, переменные DIMACS).
+        // Номера берутся блоками, так что общая таблица блокируется раз на BLOCK атомов,
+        // и после close возвращаются для следующих задач: таблица не растёт от запроса
+        // к запросу. Дизъюнкты с такими атомами имеют смысл, пока область открыта.
+        // Имена атомов области - "#номер" или заданное в fresh(name); по имени атом
+        // области не находится, поэтому он не совпадает с одноимённым атомом intern.
+        static final class Scope implements AutoCloseable {
+            private final List<Integer> blocks = new ArrayList<>();
+            private int next;
+            private int end;
+
+            int fresh() {
+                if (next == end) {
+                    next = reserveBlock();
+                    end = next + BLOCK;
+                    blocks.add(next);
                 }
+                return next++;
             }
 
-            return null;
+            int fresh(String name) {
+                int atom = fresh();
+                setName(atom, name);
+                return atom;
+            }
+
+            @Override
+            public void close() {
+                releaseBlocks(blocks);
+                blocks.clear();
+                next = end = 0;
+            }
         }
+    }
 
-        private Clause merge(Clause c1, Clause c2, String literal, boolean fromPositive) {
-            Clause result = new Clause();
+    enum CnfMode {
+        DISTRIBUTIVE, // раскрытие дистрибутивностью: эквивалентная КНФ, размер может расти экспоненциально
+        DEFINITIONAL, // переменные-определения подформул (Цейтин): равновыполнимая КНФ линейного размера
+        AUTO          // дистрибутивность, если она даёт не больше дизъюнктов, иначе определения
+    }
 
-            for (String p : c1.positive) {
-                if (!p.equals(literal) || !fromPositive) {
-                    result.positive.add(p);
-                }
+    // Литерал - номер атома со сдвигом и знаком в младшем бите: p -> 2*id, ¬p -> 2*id + 1.
+    // Литералы отсортированы и не повторяются, поэтому равные дизъюнкты совпадают
+    // поэлементно, а противоположные литералы стоят рядом.
+    static final class Clause {
+        final int[] literals;
+        private final int hash;
+        // бит (литерал mod 64) для каждого литерала - быстрый отказ в проверке поглощения
+        private final long signature;
+
+        // literals уже отсортированы и без повторов
+        private Clause(int[] literals) {
+            this.literals = literals;
+            this.hash = Arrays.hashCode(literals);
+            long signature = 0;
+            for (int literal : literals) {
+                signature |= 1L << literal;
             }
-            for (String n : c1.negative) {
-                if (!n.equals(literal) || fromPositive) {
-                    result.negative.add(n);
-                }
+            this.signature = signature;
+        }
+
+        Clause(String[] pos, String[] neg) {
+            this(canonical(literals(pos, neg)));
+        }
+
+        static Clause of(int... literals) {
+            return new Clause(canonical(literals.clone()));
+        }
+
+        // первые length литералов буфера
+        static Clause of(int[] literals, int length) {
+            return new Clause(canonical(Arrays.copyOf(literals, length)));
+        }
+
+        static int literal(int atom, boolean negative) {
+            return atom << 1 | (negative ? 1 : 0);
+        }
+
+        static int atom(int literal) {
+            return literal >>> 1;
+        }
+
+        static boolean isNegative(int literal) {
+            return (literal & 1) != 0;
+        }
+
+        private static int[] literals(String[] pos, String[] neg) {
+            int[] literals = new int[pos.length + neg.length];
+            for (int i = 0; i < pos.length; i++) {
+                literals[i] = literal(Atoms.intern(pos[i]), false);
+            }
+            for (int i = 0; i < neg.length; i++) {
+                literals[pos.length + i] = literal(Atoms.intern(neg[i]), true);
             }
+            return literals;
+        }
 
-            for (String p : c2.positive) {
-                if (!p.equals(literal) || fromPositive) {
-                    result.positive.add(p);
+        // сортировка на месте и удаление повторов
+        private static int[] canonical(int[] literals) {
+            Arrays.sort(literals);
+            int n = 0;
+            for (int i = 0; i < literals.length; i++) {
+                if (n == 0 || literals[n - 1] != literals[i]) {
+                    literals[n++] = literals[i];
                 }
             }
-            for (String n : c2.negative) {
-                if (!n.equals(literal) || !fromPositive) {
-                    result.negative.add(n);
+            return n == literals.length ? literals : Arrays.copyOf(literals, n);
+        }
+
+        int size() {
+            return literals.length;
+        }
+
+        boolean isEmpty() {
+            return literals.length == 0;
+        }
+
+        boolean isTautology() {
+            for (int i = 1; i < literals.length; i++) {
+                if (literals[i] == (literals[i - 1] | 1) && !isNegative(literals[i - 1])) return true;
+            }
+            return false;
+        }
+
+        boolean contains(int literal) {
+            return Arrays.binarySearch(literals, literal) >= 0;
+        }
+
+        // this поглощает other: все литералы this есть в other
+        boolean subsumes(Clause other) {
+            if (literals.length > other.literals.length || (signature & ~other.signature) != 0) {
+                return false;
+            }
+            int j = 0;
+            for (int literal : literals) {
+                while (j < other.literals.length && other.literals[j] < literal) j++;
+                if (j == other.literals.length || other.literals[j] != literal) return false;
+                j++;
+            }
+            return true;
+        }
+
+        // резольвента по первой паре противоположных литералов
+        Clause resolveWith(Clause other) {
+            for (int literal : literals) {
+                if (other.contains(literal ^ 1)) {
+                    return resolve(other, literal);
                 }
             }
+            return null;
+        }
 
-            return result;
+        // (this без literal) ∪ (other без ¬literal) слиянием отсортированных массивов
+        Clause resolve(Clause other, int literal) {
+            int[] a = literals;
+            int[] b = other.literals;
+            int complement = literal ^ 1;
+            int[] result = new int[a.length + b.length - 2];
+            int i = 0, j = 0, n = 0;
+            while (i < a.length && j < b.length) {
+                int x = a[i];
+                int y = b[j];
+                if (x == literal) {
+                    i++;
+                } else if (y == complement) {
+                    j++;
+                } else if (x < y) {
+                    result[n++] = x;
+                    i++;
+                } else if (x > y) {
+                    result[n++] = y;
+                    j++;
+                } else {
+                    result[n++] = x;
+                    i++;
+                    j++;
+                }
+            }
+            for (; i < a.length; i++) {
+                if (a[i] != literal) result[n++] = a[i];
+            }
+            for (; j < b.length; j++) {
+                if (b[j] != complement) result[n++] = b[j];
+            }
+            return new Clause(n == result.length ? result : Arrays.copyOf(result, n));
         }
 
         @Override
         public String toString() {
             if (isEmpty()) return "[]";
 
-            List<String> literals = new ArrayList<>(positive);
-            for (String n : negative) literals.add("¬" + n);
+            List<String> literals = new ArrayList<>();
+            for (int literal : this.literals) {
+                if (!isNegative(literal)) literals.add(Atoms.name(atom(literal)));
+            }
+            for (int literal : this.literals) {
+                if (isNegative(literal)) literals.add("¬" + Atoms.name(atom(literal)));
+            }
 
             return literals.toString();
         }
@@ -83,106 +266,172 @@ public class ResolutionMethod {
         @Override
         public boolean equals(Object obj) {
             if (!(obj instanceof Clause other)) return false;
-            return positive.equals(other.positive) && negative.equals(other.negative);
+            return hash == other.hash && Arrays.equals(literals, other.literals);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
         }
     }
 
 
-    static class Formula {
-        String type; // "var", "not", "and", "or", "impl", "equiv"
-        String var;
-        Formula left, right;
+    enum Kind {
+        VAR(""), NOT("¬"), AND(" ∧ "), OR(" ∨ "), IMPL(" → "), EQUIV(" ↔ ");
+
+        final String symbol;
+
+        Kind(String symbol) {
+            this.symbol = symbol;
+        }
+    }
+
+    // Формула - вершина DAG: структурно равные подформулы хранятся одной вершиной
+    // (hash-consing), поэтому сравнение - по ссылке, а результаты преобразований
+    // запоминаются в самой вершине и для повторяющейся подформулы считаются один раз.
+    // Вершины создаются только через var/not/and/or/impl/equiv.
+    static final class Formula {
+        // Слабые ссылки: вершина, на которую больше никто не ссылается, убирается сборщиком.
+        // Таблица разбита на части по хешу, у каждой своя блокировка, так что потоки,
+        // строящие разные формулы, почти не ждут друг друга.
+        private static final int STRIPES = 16;
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static final Map<Formula, WeakReference<Formula>>[] nodes = new Map[STRIPES];
+
+        static {
+            for (int i = 0; i < STRIPES; i++) {
+                nodes[i] = new WeakHashMap<>();
+            }
+        }
+
+        final Kind kind;
+        final String var;
+        final Formula left, right;
+        private final int hash;
 
-        Formula(String type, Formula left, Formula right) {
-            this.type = type;
+        private Formula implicationFree;
+        private Formula negationNormal;
+        private Formula distributed;
+
+        private Formula(Kind kind, String var, Formula left, Formula right) {
+            this.kind = kind;
+            this.var = var;
             this.left = left;
             this.right = right;
+            this.hash = 31 * (31 * (31 * kind.hashCode() + Objects.hashCode(var))
+                    + Objects.hashCode(left)) + Objects.hashCode(right);
         }
 
-        Formula(String var) {
-            this.type = "var";
-            this.var = var;
+        private static Formula node(Kind kind, String var, Formula left, Formula right) {
+            Formula candidate = new Formula(kind, var, left, right);
+            Map<Formula, WeakReference<Formula>> stripe = nodes[(candidate.hash ^ candidate.hash >>> 16) & (STRIPES - 1)];
+            synchronized (stripe) {
+                WeakReference<Formula> reference = stripe.get(candidate);
+                Formula existing = reference != null ? reference.get() : null;
+                if (existing != null) {
+                    return existing;
+                }
+                stripe.put(candidate, new WeakReference<>(candidate));
+                return candidate;
+            }
         }
 
-        Formula removeImplications() {
-            if (type.equals("var")) return this;
+        static Formula var(String name) {
+            return node(Kind.VAR, Objects.requireNonNull(name), null, null);
+        }
 
-            if (type.equals("impl")) {
-                return new Formula("or",
-                        new Formula("not", left.removeImplications(), null),
-                        right.removeImplications());
-            }
+        static Formula not(Formula f) {
+            return node(Kind.NOT, null, f, null);
+        }
 
-            if (type.equals("equiv")) {
-                return new Formula("and",
-                        new Formula("impl", left, right).removeImplications(),
-                        new Formula("impl", right, left).removeImplications());
-            }
+        static Formula and(Formula left, Formula right) {
+            return node(Kind.AND, null, left, right);
+        }
 
-            Formula newLeft = (left != null) ? left.removeImplications() : null;
-            Formula newRight = (right != null) ? right.removeImplications() : null;
-            return new Formula(type, newLeft, newRight);
+        static Formula or(Formula left, Formula right) {
+            return node(Kind.OR, null, left, right);
         }
 
-        Formula pushNegations() {
-            if (type.equals("var")) return this;
+        static Formula impl(Formula left, Formula right) {
+            return node(Kind.IMPL, null, left, right);
+        }
 
-            if (type.equals("not")) {
-                Formula inner = left;
+        static Formula equiv(Formula left, Formula right) {
+            return node(Kind.EQUIV, null, left, right);
+        }
 
-                if (inner.type.equals("not")) {
-                    return inner.left.pushNegations();
-                }
+        private static Formula of(Kind kind, Formula left, Formula right) {
+            return node(kind, null, left, right);
+        }
 
-                if (inner.type.equals("and")) {
-                    return new Formula("or",
-                            new Formula("not", inner.left, null).pushNegations(),
-                            new Formula("not", inner.right, null).pushNegations());
-                }
+        // дети уже единственны, поэтому их достаточно сравнить по ссылке
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Formula other && hash == other.hash && kind == other.kind
+                    && Objects.equals(var, other.var) && left == other.left && right == other.right;
+        }
 
-                if (inner.type.equals("or")) {
-                    return new Formula("and",
-                            new Formula("not", inner.left, null).pushNegations(),
-                            new Formula("not", inner.right, null).pushNegations());
-                }
-            }
+        @Override
+        public int hashCode() {
+            return hash;
+        }
 
-            Formula newLeft = (left != null) ? left.pushNegations() : null;
-            Formula newRight = (right != null) ? right.pushNegations() : null;
-            return new Formula(type, newLeft, newRight);
+        Formula removeImplications() {
+            Formula result = implicationFree;
+            if (result != null) return result;
+
+            result = switch (kind) {
+                case VAR -> this;
+                case IMPL -> or(not(left.removeImplications()), right.removeImplications());
+                case EQUIV -> and(impl(left, right).removeImplications(), impl(right, left).removeImplications());
+                case NOT -> not(left.removeImplications());
+                default -> of(kind, left.removeImplications(), right.removeImplications());
+            };
+            implicationFree = result;
+            return result;
+        }
+
+        Formula pushNegations() {
+            Formula result = negationNormal;
+            if (result != null) return result;
+
+            result = switch (kind) {
+                case VAR -> this;
+                case NOT -> switch (left.kind) {
+                    case NOT -> left.left.pushNegations();
+                    case AND -> or(not(left.left).pushNegations(), not(left.right).pushNegations());
+                    case OR -> and(not(left.left).pushNegations(), not(left.right).pushNegations());
+                    default -> not(left.pushNegations());
+                };
+                default -> of(kind, left.pushNegations(), right.pushNegations());
+            };
+            negationNormal = result;
+            return result;
         }
 
         Formula applyDistributivity() {
-            if (type.equals("var")) return this;
-
-            Formula newLeft = (left != null) ? left.applyDistributivity() : null;
-            Formula newRight = (right != null) ? right.applyDistributivity() : null;
-            Formula result = new Formula(type, newLeft, newRight);
-
-            if (type.equals("or")) {
-                boolean changed;
-                do {
-                    changed = false;
-
-                    if (result.right.type.equals("and")) {
-                        result = new Formula("and",
-                                new Formula("or", result.left, result.right.left),
-                                new Formula("or", result.left, result.right.right));
-                        changed = true;
-                    } else if (result.left.type.equals("and")) {
-                        result = new Formula("and",
-                                new Formula("or", result.left.left, result.right),
-                                new Formula("or", result.left.right, result.right));
-                        changed = true;
-                    }
+            Formula result = distributed;
+            if (result != null) return result;
+
+            result = switch (kind) {
+                case VAR -> this;
+                case NOT -> not(left.applyDistributivity());
+                case OR -> distribute(left.applyDistributivity(), right.applyDistributivity());
+                default -> of(kind, left.applyDistributivity(), right.applyDistributivity());
+            };
+            distributed = result;
+            return result;
+        }
 
-                    if (changed) {
-                        result = result.applyDistributivity();
-                    }
-                } while (changed);
+        // дизъюнкция двух формул в КНФ, раскрытая в КНФ
+        private static Formula distribute(Formula a, Formula b) {
+            if (a.kind == Kind.AND) {
+                return and(distribute(a.left, b), distribute(a.right, b));
             }
-
-            return result;
+            if (b.kind == Kind.AND) {
+                return and(distribute(a, b.left), distribute(a, b.right));
+            }
+            return or(a, b);
         }
 
         Formula toCNF() {
@@ -191,75 +440,93 @@ public class ResolutionMethod {
                     .applyDistributivity();
         }
 
+        // дизъюнкты формулы, уже приведённой к КНФ
         List<Clause> toClauses() {
             List<Clause> clauses = new ArrayList<>();
-            collectClauses(this, clauses);
+            collectClauses(this, clauses, Collections.newSetFromMap(new IdentityHashMap<>()));
             return clauses;
         }
 
-        private void collectClauses(Formula f, List<Clause> clauses) {
-            if (f.type.equals("and")) {
-                collectClauses(f.left, clauses);
-                collectClauses(f.right, clauses);
+        // дизъюнкты произвольной формулы; атомы определений берутся из scope
+        List<Clause> toClauses(CnfMode mode, Atoms.Scope scope) {
+            return switch (mode) {
+                case DISTRIBUTIVE -> toCNF().toClauses();
+                case DEFINITIONAL -> CnfEncoder.encode(this, scope);
+                case AUTO -> CnfEncoder.prefersDistributive(this) ? toCNF().toClauses() : CnfEncoder.encode(this, scope);
+            };
+        }
+
+        // общая подформула DAG даёт свои дизъюнкты один раз
+        private void collectClauses(Formula f, List<Clause> clauses, Set<Formula> visited) {
+            if (!visited.add(f)) return;
+            if (f.kind == Kind.AND) {
+                collectClauses(f.left, clauses, visited);
+                collectClauses(f.right, clauses, visited);
             } else {
-                Clause clause = new Clause();
-                extractLiterals(f, clause);
+                List<Integer> literals = new ArrayList<>();
+                extractLiterals(f, literals);
+                Clause clause = Clause.of(literals.stream().mapToInt(Integer::intValue).toArray());
                 if (!clause.isTautology()) {
                     clauses.add(clause);
                 }
             }
         }
 
-        private void extractLiterals(Formula f, Clause clause) {
-            if (f.type.equals("var")) {
-                clause.positive.add(f.var);
-            } else if (f.type.equals("not")) {
-                if (f.left.type.equals("var")) {
-                    clause.negative.add(f.left.var);
+        private void extractLiterals(Formula f, List<Integer> literals) {
+            if (f.kind == Kind.VAR) {
+                literals.add(Clause.literal(Atoms.intern(f.var), false));
+            } else if (f.kind == Kind.NOT) {
+                if (f.left.kind == Kind.VAR) {
+                    literals.add(Clause.literal(Atoms.intern(f.left.var), true));
                 }
-            } else if (f.type.equals("or")) {
-                extractLiterals(f.left, clause);
-                extractLiterals(f.right, clause);
+            } else if (f.kind == Kind.OR) {
+                extractLiterals(f.left, literals);
+                extractLiterals(f.right, literals);
             }
         }
 
         @Override
         public String toString() {
-            if (type.equals("var")) return var;
-            if (type.equals("not")) return "¬" + left;
-
-            String op = switch (type) {
-                case "and" -> " ∧ ";
-                case "or" -> " ∨ ";
-                case "impl" -> " → ";
-                default -> "";
-            };
+            if (kind == Kind.VAR) return var;
+            if (kind == Kind.NOT) return kind.symbol + left;
 
-            return "(" + left + op + right + ")";
+            return "(" + left + kind.symbol + right + ")";
         }
     }
 
+    // Насыщение перебором: каждый дизъюнкт по очереди резолвируется со всеми
+    // предыдущими, партнёры ищутся по индексу противоположного литерала,
+    // резольвенты строятся по каждой паре противоположных литералов.
     public static boolean resolution(List<Clause> clauses) {
-        Set<Clause> allClauses = new HashSet<>(clauses);
-        List<Clause> clauseList = new ArrayList<>(clauses);
+        Set<Clause> allClauses = new HashSet<>();
+        List<Clause> clauseList = new ArrayList<>();
+        for (Clause clause : clauses) {
+            if (clause.isEmpty()) return true;
+            if (!clause.isTautology() && allClauses.add(clause)) {
+                clauseList.add(clause);
+            }
+        }
 
+        LiteralIndex index = new LiteralIndex();
         for (int i = 0; i < clauseList.size(); i++) {
-            for (int j = 0; j < clauseList.size(); j++) {
-                if (i == j) continue;
+            Clause clause = clauseList.get(i);
 
-                Clause resolvent = clauseList.get(i).resolveWith(clauseList.get(j));
+            for (int literal : clause.literals) {
+                for (Clause other : index.clausesWith(literal ^ 1)) {
+                    Clause resolvent = clause.resolve(other, literal);
 
-                if (resolvent != null && !resolvent.isTautology()) {
-                    if (resolvent.isEmpty()) {
-                        return true;
-                    }
+                    if (!resolvent.isTautology()) {
+                        if (resolvent.isEmpty()) {
+                            return true;
+                        }
 
-                    if (!allClauses.contains(resolvent)) {
-                        allClauses.add(resolvent);
-                        clauseList.add(resolvent);
+                        if (allClauses.add(resolvent)) {
+                            clauseList.add(resolvent);
+                        }
                     }
                 }
             }
+            index.add(clause);
         }
 
         return false;
@@ -271,19 +538,19 @@ public class ResolutionMethod {
         System.out.println("2. Все дети это люди: C → P = ¬C v P");
         System.out.println("Доказать: Дети не являются четвероногими: C → ¬Q = ¬C ∨ ¬Q ");
 
-        Formula premise1 = new Formula("or",
-                new Formula("not", new Formula("P"), null),
-                new Formula("not", new Formula("Q"), null));
+        Formula premise1 = Formula.or(
+                Formula.not(Formula.var("P")),
+                Formula.not(Formula.var("Q")));
 
-        Formula premise2 = new Formula("or",
-                new Formula("not", new Formula("C"), null),
-                new Formula("P"));
+        Formula premise2 = Formula.or(
+                Formula.not(Formula.var("C")),
+                Formula.var("P"));
 
-        Formula knowledgeBase = new Formula("and", premise1, premise2);
+        Formula knowledgeBase = Formula.and(premise1, premise2);
 
-        Formula conclusion = new Formula("or",
-                new Formula("not", new Formula("C"), null),
-                new Formula("not", new Formula("Q"), null));
+        Formula conclusion = Formula.or(
+                Formula.not(Formula.var("C")),
+                Formula.not(Formula.var("Q")));
 
         proveTheorem(knowledgeBase, conclusion);
 
@@ -291,19 +558,57 @@ public class ResolutionMethod {
     }
 
     private static void proveTheorem(Formula kb1, Formula theorem1) {
-        Formula combined1 = new Formula("and",
-                kb1,
-                new Formula("not", theorem1, null));
+        proveTheorem(kb1, theorem1, Engine.PAIRWISE);
+    }
+
+    static void proveTheorem(Formula kb1, Formula theorem1, Engine engine) {
+        Formula negated1 = Formula.not(theorem1);
+        Formula combined1 = Formula.and(kb1, negated1);
 
         System.out.println("Формула: " + combined1);
 
-        Formula cnf1 = combined1.toCNF();
-        System.out.println("КНФ: " + cnf1);
+        // КНФ раскрытием печатается, только если она не больше КНФ с определениями
+        if (CnfEncoder.prefersDistributive(combined1)) {
+            System.out.println("КНФ: " + combined1.toCNF());
+        }
+
+        try (Atoms.Scope scope = new Atoms.Scope()) {
+            List<Clause> axioms = kb1.toClauses(CnfMode.AUTO, scope);
+            List<Clause> negatedGoal = negated1.toClauses(CnfMode.AUTO, scope);
+            List<Clause> clauses1 = new ArrayList<>(axioms);
+            clauses1.addAll(negatedGoal);
+            System.out.println("Дизъюнкты: " + clauses1);
+
+            boolean result1 = refute(axioms, negatedGoal, engine);
+            System.out.println("Результат: " + (result1 ? "СЛЕДУЕТ" : "НЕ СЛЕДУЕТ"));
+        }
+    }
 
-        List<Clause> clauses1 = cnf1.toClauses();
-        System.out.println("Дизъюнкты: " + clauses1);
+    // true - набор дизъюнктов невыполним, например задача из Dimacs.read;
+    // выделенного заключения нет, поэтому насыщение идёт без set-of-support
+    static boolean unsatisfiable(List<Clause> clauses, Engine engine) {
+        return switch (engine) {
+            case PAIRWISE -> resolution(clauses);
+            case GIVEN_CLAUSE, GIVEN_CLAUSE_SOS -> new GivenClauseProver().refute(List.of(), clauses);
+            case CDCL -> !new CdclSolver(clauses).solve();
+        };
+    }
 
-        boolean result1 = resolution(clauses1);
-        System.out.println("Результат: " + (result1 ? "СЛЕДУЕТ" : "НЕ СЛЕДУЕТ"));
+    // true - аксиомы вместе с отрицанием заключения противоречивы
+    static boolean refute(List<Clause> axioms, List<Clause> negatedGoal, Engine engine) {
+        return switch (engine) {
+            case PAIRWISE -> {
+                List<Clause> clauses = new ArrayList<>(axioms);
+                clauses.addAll(negatedGoal);
+                yield resolution(clauses);
+            }
+            case GIVEN_CLAUSE -> new GivenClauseProver().refute(axioms, negatedGoal);
+            case GIVEN_CLAUSE_SOS -> new GivenClauseProver(true).refute(axioms, negatedGoal);
+            case CDCL -> {
+                List<Clause> clauses = new ArrayList<>(axioms);
+                clauses.addAll(negatedGoal);
+                yield !new CdclSolver(clauses).solve();
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,194 @@
+package ru.lab;
+
+import java.util.*;
+
+// Rete-сеть для правил без переменных.
+// Альфа-узел - одно условие (общий для всех правил с таким же условием),
+// бета-узел - конъюнкция префикса условий (общие префиксы разделяются).
+// Сеть неизменяема и разделяется сессиями, состояние узлов хранит ReteMatcher.
+class ReteNetwork {
+
+    static final class AlphaNode {
+        final int id;
+        final int factId;
+        final ConditionPredicate predicate;
+        final List<BetaNode> successors = new ArrayList<>();
+        final List<Integer> conditions = new ArrayList<>(); // номера условий правил, как в RuleMetrics
+
+        AlphaNode(int id, int factId, ConditionPredicate predicate) {
+            this.id = id;
+            this.factId = factId;
+            this.predicate = predicate;
+        }
+    }
+
+    static final class BetaNode {
+        final int id;
+        final BetaNode parent;
+        final AlphaNode alpha;
+        final List<BetaNode> children = new ArrayList<>();
+        final List<Integer> terminals = new ArrayList<>(); // индексы правил
+
+        BetaNode(int id, BetaNode parent, AlphaNode alpha) {
+            this.id = id;
+            this.parent = parent;
+            this.alpha = alpha;
+        }
+    }
+
+    private record AlphaKey(String factName, String operator, Object expectedValue) {}
+
+    private record BetaKey(BetaNode parent, AlphaNode alpha) {}
+
+    final List<CompiledRule> rules;
+    final List<AlphaNode> alphaNodes = new ArrayList<>();
+    final List<BetaNode> betaNodes = new ArrayList<>(); // родители раньше потомков
+    final List<List<AlphaNode>> alphaByFact;
+    final BitSet unconditional = new BitSet(); // правила без условий
+
+    ReteNetwork(List<CompiledRule> rules, int factCount) {
+        this.rules = rules;
+        this.alphaByFact = new ArrayList<>(factCount);
+        for (int f = 0; f < factCount; f++) {
+            alphaByFact.add(new ArrayList<>());
+        }
+
+        Map<AlphaKey, AlphaNode> alphaIndex = new HashMap<>();
+        Map<BetaKey, BetaNode> betaIndex = new HashMap<>();
+        int condition = 0;
+        for (CompiledRule rule : rules) {
+            List<Condition> conditions = rule.rule.conditions;
+            if (conditions.isEmpty()) {
+                unconditional.set(rule.index);
+                continue;
+            }
+            BetaNode node = null;
+            for (int i = 0; i < conditions.size(); i++) {
+                Condition cond = conditions.get(i);
+                int factId = rule.conditionFacts[i];
+                ConditionPredicate predicate = rule.predicates[i];
+                AlphaNode alpha = alphaIndex.computeIfAbsent(
+                        new AlphaKey(cond.factName, cond.operator, cond.expectedValue), k -> {
+                            AlphaNode a = new AlphaNode(alphaNodes.size(), factId, predicate);
+                            alphaNodes.add(a);
+                            alphaByFact.get(factId).add(a);
+                            return a;
+                        });
+                alpha.conditions.add(condition++);
+                BetaNode parent = node;
+                node = betaIndex.computeIfAbsent(new BetaKey(parent, alpha), k -> {
+                    BetaNode b = new BetaNode(betaNodes.size(), parent, alpha);
+                    betaNodes.add(b);
+                    alpha.successors.add(b);
+                    if (parent != null) {
+                        parent.children.add(b);
+                    }
+                    return b;
+                });
+            }
+            node.terminals.add(rule.index);
+        }
+    }
+}
+
+// Состояние Rete-сети для одной рабочей памяти
+class ReteMatcher implements RuleMatcher {
+    private final ReteNetwork network;
+    private final WorkingMemory workingMemory;
+    private final MatchStats stats;
+
+    private final boolean[] alphaState;
+    private final boolean[] betaState;
+    private final BitSet matched;
+    private final BitSet available;
+
+    ReteMatcher(ReteNetwork network, WorkingMemory workingMemory, MatchStats stats) {
+        this.network = network;
+        this.workingMemory = workingMemory;
+        this.stats = stats;
+        this.matched = (BitSet) network.unconditional.clone();
+        this.available = new BitSet(network.rules.size());
+
+        alphaState = new boolean[network.alphaNodes.size()];
+        betaState = new boolean[network.betaNodes.size()];
+        for (ReteNetwork.AlphaNode alpha : network.alphaNodes) {
+            stats.conditionEvaluations++;
+            alphaState[alpha.id] = workingMemory.test(alpha.factId, alpha.predicate);
+            recordMetrics(alpha, alphaState[alpha.id]);
+        }
+        for (ReteNetwork.BetaNode beta : network.betaNodes) {
+            update(beta, false);
+        }
+    }
+
+    @Override
+    public void startRun() {
+        available.set(0, network.rules.size());
+    }
+
+    @Override
+    public void startRun(BitSet rules) {
+        available.clear();
+        available.or(rules);
+    }
+
+    @Override
+    public void makeAvailable(int ruleIndex) {
+        available.set(ruleIndex);
+    }
+
+    @Override
+    public List<CompiledRule> applicableRules() {
+        stats.iterations++;
+        List<CompiledRule> applicableRules = new ArrayList<>();
+        BitSet conflictSet = (BitSet) matched.clone();
+        conflictSet.and(available);
+        for (int i = conflictSet.nextSetBit(0); i >= 0; i = conflictSet.nextSetBit(i + 1)) {
+            applicableRules.add(network.rules.get(i));
+        }
+        return applicableRules;
+    }
+
+    @Override
+    public void ruleFired(CompiledRule rule) {
+        available.clear(rule.index);
+    }
+
+    @Override
+    public void factChanged(int factId) {
+        for (ReteNetwork.AlphaNode alpha : network.alphaByFact.get(factId)) {
+            stats.conditionEvaluations++;
+            boolean state = workingMemory.test(alpha.factId, alpha.predicate);
+            recordMetrics(alpha, state);
+            if (state == alphaState[alpha.id]) continue;
+            alphaState[alpha.id] = state;
+            for (ReteNetwork.BetaNode beta : alpha.successors) {
+                update(beta, true);
+            }
+        }
+    }
+
+    // одна проверка альфа-узла засчитывается всем условиям, которые он представляет
+    private void recordMetrics(ReteNetwork.AlphaNode alpha, boolean passed) {
+        if (stats.metrics != null) {
+            for (int condition : alpha.conditions) {
+                stats.metrics.conditionEvaluated(condition, passed);
+            }
+        }
+    }
+
+    private void update(ReteNetwork.BetaNode beta, boolean propagate) {
+        boolean state = (beta.parent == null || betaState[beta.parent.id]) && alphaState[beta.alpha.id];
+        if (propagate && state == betaState[beta.id]) return;
+        betaState[beta.id] = state;
+
+        for (int ruleIndex : beta.terminals) {
+            matched.set(ruleIndex, state);
+        }
+        if (propagate) {
+            for (ReteNetwork.BetaNode child : beta.children) {
+                update(child, true);
+            }
+        }
+    }
+}
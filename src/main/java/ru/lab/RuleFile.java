@@ -0,0 +1,331 @@
+package ru.lab;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Consumer;
+
+// Текстовый формат базы правил:
+//
+//   # комментарий
+//   rule "Игры среднего уровня" priority 2
+//       if тип_задачи = "игры"
+//       and бюджет_руб >= 25000
+//       and требуемая_категория in ["игровой_топовый", "профессиональный"]
+//       then требуемая_категория = "игровой_средний"
+//       and задача_определена = true
+//   end
+//
+// Значения: строки в кавычках, целые (Integer, при переполнении Long), вещественные,
+// true/false/null и списки в квадратных скобках. exists/not_exists пишутся без значения.
+class RuleFileParser {
+    private final Consumer<Rule> sink;
+
+    private int lineNumber;
+    private String ruleName;
+    private int priority;
+    private List<Condition> conditions;
+    private List<Action> actions;
+
+    RuleFileParser(Consumer<Rule> sink) {
+        this.sink = sink;
+    }
+
+    static void load(Path path, ProductionSystem system) throws IOException {
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            new RuleFileParser(system::addRule).parse(reader);
+        }
+    }
+
+    static List<Rule> parse(Path path) throws IOException {
+        List<Rule> rules = new ArrayList<>();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            new RuleFileParser(rules::add).parse(reader);
+        }
+        return rules;
+    }
+
+    // правила передаются в sink по одному, по мере чтения
+    void parse(Reader reader) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader b ? b : new BufferedReader(reader);
+        String line;
+        while ((line = in.readLine()) != null) {
+            lineNumber++;
+            Tokenizer tokens = new Tokenizer(line);
+            if (!tokens.hasNext()) continue;
+            parseLine(tokens);
+        }
+        if (ruleName != null) {
+            throw error("правило \"" + ruleName + "\" не закрыто словом end");
+        }
+    }
+
+    private void parseLine(Tokenizer tokens) {
+        String keyword = tokens.word();
+        if (ruleName == null) {
+            if (!keyword.equals("rule")) throw error("ожидалось rule, получено " + keyword);
+            ruleName = tokens.string();
+            priority = 0;
+            if (tokens.hasNext()) {
+                tokens.expectWord("priority");
+                Object value = tokens.value();
+                if (!(value instanceof Integer p)) throw error("приоритет должен быть целым");
+                priority = p;
+            }
+            conditions = new ArrayList<>();
+            actions = new ArrayList<>();
+        } else {
+            switch (keyword) {
+                case "if" -> {
+                    if (!conditions.isEmpty() || !actions.isEmpty()) throw error("if должно быть первым условием");
+                    conditions.add(condition(tokens));
+                }
+                case "then" -> {
+                    if (!actions.isEmpty()) throw error("повторное then");
+                    actions.add(action(tokens));
+                }
+                case "and" -> {
+                    if (!actions.isEmpty()) {
+                        actions.add(action(tokens));
+                    } else if (!conditions.isEmpty()) {
+                        conditions.add(condition(tokens));
+                    } else {
+                        throw error("and без if или then");
+                    }
+                }
+                case "end" -> {
+                    if (actions.isEmpty()) throw error("правило \"" + ruleName + "\" без действий");
+                    sink.accept(new Rule(ruleName, conditions, actions, priority));
+                    ruleName = null;
+                }
+                default -> throw error("неизвестное слово " + keyword);
+            }
+        }
+        if (tokens.hasNext()) throw error("лишний текст в конце строки");
+    }
+
+    private Condition condition(Tokenizer tokens) {
+        String fact = tokens.word();
+        String operator = tokens.operator();
+        Operator op;
+        try {
+            op = Operator.fromSymbol(operator);
+        } catch (IllegalArgumentException e) {
+            throw error(e.getMessage());
+        }
+        Object expected = (op == Operator.EXISTS || op == Operator.NOT_EXISTS) ? null : tokens.value();
+        Condition condition = new Condition(fact, operator, expected);
+        condition.compile();
+        return condition;
+    }
+
+    private Action action(Tokenizer tokens) {
+        String fact = tokens.word();
+        if (!tokens.operator().equals("=")) throw error("в действии ожидалось =");
+        return new Action(fact, tokens.value());
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Строка " + lineNumber + ": " + message);
+    }
+
+    private final class Tokenizer {
+        private final String line;
+        private int pos;
+
+        Tokenizer(String line) {
+            this.line = line;
+            skipSpaces();
+        }
+
+        boolean hasNext() {
+            return pos < line.length();
+        }
+
+        private void skipSpaces() {
+            while (pos < line.length() && Character.isWhitespace(line.charAt(pos))) pos++;
+            if (pos < line.length() && line.charAt(pos) == '#') pos = line.length();
+        }
+
+        private boolean isWordChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '_';
+        }
+
+        String word() {
+            if (!hasNext() || !isWordChar(line.charAt(pos))) throw error("ожидалось имя");
+            int start = pos;
+            while (pos < line.length() && isWordChar(line.charAt(pos))) pos++;
+            String word = line.substring(start, pos);
+            skipSpaces();
+            return word;
+        }
+
+        void expectWord(String expected) {
+            String word = word();
+            if (!word.equals(expected)) throw error("ожидалось " + expected + ", получено " + word);
+        }
+
+        String operator() {
+            if (!hasNext()) throw error("ожидался оператор");
+            char c = line.charAt(pos);
+            if (isWordChar(c)) return word();
+            int start = pos;
+            while (pos < line.length() && "=!<>".indexOf(line.charAt(pos)) >= 0) pos++;
+            if (start == pos) throw error("ожидался оператор");
+            String op = line.substring(start, pos);
+            skipSpaces();
+            return op;
+        }
+
+        String string() {
+            if (!hasNext() || line.charAt(pos) != '"') throw error("ожидалась строка в кавычках");
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (true) {
+                if (pos >= line.length()) throw error("незакрытая строка");
+                char c = line.charAt(pos++);
+                if (c == '"') break;
+                if (c == '\\') {
+                    if (pos >= line.length()) throw error("незакрытая строка");
+                    char e = line.charAt(pos++);
+                    sb.append(switch (e) {
+                        case 'n' -> '\n';
+                        case 't' -> '\t';
+                        default -> e;
+                    });
+                } else {
+                    sb.append(c);
+                }
+            }
+            skipSpaces();
+            return sb.toString();
+        }
+
+        Object value() {
+            if (!hasNext()) throw error("ожидалось значение");
+            char c = line.charAt(pos);
+            if (c == '"') return string();
+            if (c == '[') {
+                pos++;
+                skipSpaces();
+                List<Object> values = new ArrayList<>();
+                if (hasNext() && line.charAt(pos) == ']') {
+                    pos++;
+                    skipSpaces();
+                    return values;
+                }
+                while (true) {
+                    values.add(value());
+                    if (!hasNext()) throw error("незакрытый список");
+                    char d = line.charAt(pos++);
+                    skipSpaces();
+                    if (d == ']') return values;
+                    if (d != ',') throw error("ожидалась запятая в списке");
+                }
+            }
+            if (c == '-' || Character.isDigit(c)) return number();
+            String word = word();
+            return switch (word) {
+                case "true" -> Boolean.TRUE;
+                case "false" -> Boolean.FALSE;
+                case "null" -> null;
+                default -> throw error("неизвестное значение " + word);
+            };
+        }
+
+        private Object number() {
+            int start = pos;
+            if (line.charAt(pos) == '-') pos++;
+            while (pos < line.length() && "0123456789.eE+-".indexOf(line.charAt(pos)) >= 0) pos++;
+            String text = line.substring(start, pos);
+            skipSpaces();
+            try {
+                if (text.indexOf('.') >= 0 || text.indexOf('e') >= 0 || text.indexOf('E') >= 0) {
+                    return Double.parseDouble(text);
+                }
+                long value = Long.parseLong(text);
+                if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+                    return (int) value;
+                }
+                return value;
+            } catch (NumberFormatException e) {
+                throw error("некорректное число " + text);
+            }
+        }
+    }
+}
+
+// Запись правил в тот же текстовый формат
+class RuleFileWriter {
+
+    static void write(List<Rule> rules, Path path) throws IOException {
+        try (Writer out = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            write(rules, out);
+        }
+    }
+
+    static void write(List<Rule> rules, Writer out) throws IOException {
+        for (Rule rule : rules) {
+            out.write("rule " + quote(rule.name) + " priority " + rule.priority + "\n");
+            for (int i = 0; i < rule.conditions.size(); i++) {
+                Condition cond = rule.conditions.get(i);
+                out.write("    " + (i == 0 ? "if " : "and ") + name(cond.factName) + " " + cond.operator);
+                if (!cond.operator.equals("exists") && !cond.operator.equals("not_exists")) {
+                    out.write(" " + format(cond.expectedValue));
+                }
+                out.write("\n");
+            }
+            for (int i = 0; i < rule.actions.size(); i++) {
+                Action action = rule.actions.get(i);
+                out.write("    " + (i == 0 ? "then " : "and ") + name(action.factName) + " = " + format(action.value) + "\n");
+            }
+            out.write("end\n\n");
+        }
+    }
+
+    // имя факта пишется без кавычек, поэтому допустимы только буквы, цифры и '_'
+    private static String name(String fact) {
+        boolean valid = !fact.isEmpty();
+        for (int i = 0; i < fact.length() && valid; i++) {
+            char c = fact.charAt(i);
+            valid = Character.isLetterOrDigit(c) || c == '_';
+        }
+        if (!valid) {
+            throw new IllegalArgumentException("Имя факта не записывается в текстовом формате: \"" + fact + "\"");
+        }
+        return fact;
+    }
+
+    private static String format(Object value) {
+        if (value instanceof Double d && !Double.isFinite(d)) {
+            throw new IllegalArgumentException("NaN и бесконечность не записываются в текстовом формате: " + d);
+        }
+        if (value == null || value instanceof Boolean || value instanceof Integer || value instanceof Double) {
+            return String.valueOf(value);
+        }
+        if (value instanceof Long l) {
+            if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Long в диапазоне int не различим в текстовом формате: " + l);
+            }
+            return l.toString();
+        }
+        if (value instanceof String s) {
+            return quote(s);
+        }
+        if (value instanceof Collection<?> || value instanceof Object[]) {
+            Collection<?> items = value instanceof Object[] array ? Arrays.asList(array) : (Collection<?>) value;
+            StringJoiner joiner = new StringJoiner(", ", "[", "]");
+            for (Object item : items) {
+                joiner.add(format(item));
+            }
+            return joiner.toString();
+        }
+        throw new IllegalArgumentException("Значение не поддерживается текстовым форматом: " + value);
+    }
+
+    private static String quote(String s) {
+        return "\"" + s.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n").replace("\t", "\\t") + "\"";
+    }
+}
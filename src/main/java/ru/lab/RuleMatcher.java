@@ -0,0 +1,156 @@
+package ru.lab;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Поиск применимых правил для прямого вывода.
+// Реализация держится в синхронизации с рабочей памятью через factChanged.
+interface RuleMatcher {
+    // начало нового прогона: все правила снова доступны
+    void startRun();
+
+    // начало прогона только по указанным правилам (номера CompiledRule.index)
+    void startRun(BitSet rules);
+
+    // правило снова может сработать в этом прогоне
+    void makeAvailable(int ruleIndex);
+
+    // доступные правила, условия которых выполнены, в порядке добавления
+    List<CompiledRule> applicableRules();
+
+    void ruleFired(CompiledRule rule);
+
+    void factChanged(int factId);
+}
+
+// Полный перебор всех доступных правил на каждой итерации.
+// Если доступных правил не меньше parallelThreshold, перебор делится на куски
+// по номерам правил и идёт в ForkJoinPool; каждый кусок собирает применимые правила
+// и счётчики в свой буфер, буферы склеиваются по порядку кусков. Поэтому список
+// применимых правил тот же, что и при последовательном переборе, и порядок
+// срабатывания не зависит от режима ни для одной стратегии.
+class ScanMatcher implements RuleMatcher {
+    static final int DEFAULT_PARALLEL_THRESHOLD = 20_000;
+    private static final int MIN_CHUNK = 1024;
+
+    private final List<CompiledRule> rules;
+    private final WorkingMemory workingMemory;
+    private final MatchStats stats;
+    private final BitSet available = new BitSet();
+    private final int parallelThreshold;
+
+    ScanMatcher(List<CompiledRule> rules, WorkingMemory workingMemory, MatchStats stats) {
+        this(rules, workingMemory, stats, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    ScanMatcher(List<CompiledRule> rules, WorkingMemory workingMemory, MatchStats stats, int parallelThreshold) {
+        this.rules = rules;
+        this.workingMemory = workingMemory;
+        this.stats = stats;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    @Override
+    public void startRun() {
+        available.set(0, rules.size());
+    }
+
+    @Override
+    public void startRun(BitSet rules) {
+        available.clear();
+        available.or(rules);
+    }
+
+    @Override
+    public void makeAvailable(int ruleIndex) {
+        available.set(ruleIndex);
+    }
+
+    @Override
+    public List<CompiledRule> applicableRules() {
+        stats.iterations++;
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        if (pool.getParallelism() > 1 && available.cardinality() >= Math.max(1, parallelThreshold)) {
+            return parallelScan(pool);
+        }
+        List<CompiledRule> applicableRules = new ArrayList<>();
+        scan(0, rules.size(), applicableRules, stats);
+        return applicableRules;
+    }
+
+    private void scan(int from, int to, List<CompiledRule> applicableRules, MatchStats stats) {
+        for (int i = available.nextSetBit(from); i >= 0 && i < to; i = available.nextSetBit(i + 1)) {
+            CompiledRule rule = rules.get(i);
+            if (stats.isApplicable(rule, workingMemory)) {
+                applicableRules.add(rule);
+            }
+        }
+    }
+
+    // во время перебора рабочая память и available только читаются
+    private List<CompiledRule> parallelScan(ForkJoinPool pool) {
+        int size = available.length();
+        int chunk = Math.max(MIN_CHUNK, size / (pool.getParallelism() * 4) + 1);
+        int chunks = (size + chunk - 1) / chunk;
+        List<List<CompiledRule>> buffers = new ArrayList<>(Collections.nCopies(chunks, null));
+        MatchStats[] chunkStats = new MatchStats[chunks];
+        pool.invoke(new ScanTask(0, chunks, chunk, buffers, chunkStats));
+
+        int total = 0;
+        for (List<CompiledRule> buffer : buffers) {
+            total += buffer.size();
+        }
+        List<CompiledRule> applicableRules = new ArrayList<>(total);
+        for (int c = 0; c < chunks; c++) {
+            applicableRules.addAll(buffers.get(c));
+            stats.ruleChecks += chunkStats[c].ruleChecks;
+            stats.conditionEvaluations += chunkStats[c].conditionEvaluations;
+        }
+        return applicableRules;
+    }
+
+    // куски [from, to) по chunk правил; лист обрабатывает один кусок.
+    // Задача живёт только внутри пула и не сериализуется.
+    @SuppressWarnings("serial")
+    private final class ScanTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int chunk;
+        private final List<List<CompiledRule>> buffers;
+        private final MatchStats[] chunkStats;
+
+        ScanTask(int from, int to, int chunk, List<List<CompiledRule>> buffers, MatchStats[] chunkStats) {
+            this.from = from;
+            this.to = to;
+            this.chunk = chunk;
+            this.buffers = buffers;
+            this.chunkStats = chunkStats;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new ScanTask(from, middle, chunk, buffers, chunkStats),
+                        new ScanTask(middle, to, chunk, buffers, chunkStats));
+                return;
+            }
+            MatchStats local = new MatchStats();
+            local.metrics = stats.metrics;
+            List<CompiledRule> buffer = new ArrayList<>();
+            scan(from * chunk, Math.min(rules.size(), (from + 1) * chunk), buffer, local);
+            buffers.set(from, buffer);
+            chunkStats[from] = local;
+        }
+    }
+
+    @Override
+    public void ruleFired(CompiledRule rule) {
+        available.clear(rule.index);
+    }
+
+    @Override
+    public void factChanged(int factId) {
+    }
+}
@@ -0,0 +1,300 @@
+package ru.lab;
+
+import javax.management.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Счётчики работы базы правил, общие для всех её сессий.
+// Включаются KnowledgeBase.enableMetrics(); LongAdder не мешает параллельным сессиям.
+// Условия нумеруются подряд по правилам, как в ConditionIndex.
+class RuleMetrics implements RuleMetricsMBean {
+    private static final int TOP = 10;
+
+    private final List<CompiledRule> rules;
+    private final int[] conditionOffset; // номер первого условия правила
+    private final LongAdder[] conditionEvaluations;
+    private final LongAdder[] conditionPasses;
+    private final LongAdder[] ruleFires;
+
+    private final LongAdder forwardRuns = new LongAdder();
+    private final LongAdder forwardIterations = new LongAdder();
+    private final LongAdder forwardNanos = new LongAdder();
+    private final LongAdder conflictSets = new LongAdder();
+    private final LongAdder conflictSetTotal = new LongAdder();
+    private final LongAccumulator conflictSetMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder backwardRuns = new LongAdder();
+    private final LongAdder subgoals = new LongAdder();
+    private final LongAdder backwardNanos = new LongAdder();
+    private final LongAccumulator recursionDepthMax = new LongAccumulator(Math::max, 0);
+
+    RuleMetrics(List<CompiledRule> rules) {
+        this.rules = rules;
+        this.conditionOffset = new int[rules.size() + 1];
+        for (int i = 0; i < rules.size(); i++) {
+            conditionOffset[i + 1] = conditionOffset[i] + rules.get(i).conditionFacts.length;
+        }
+        this.conditionEvaluations = adders(conditionOffset[rules.size()]);
+        this.conditionPasses = adders(conditionOffset[rules.size()]);
+        this.ruleFires = adders(rules.size());
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    int condition(int ruleIndex, int conditionIndex) {
+        return conditionOffset[ruleIndex] + conditionIndex;
+    }
+
+    void conditionEvaluated(int condition, boolean passed) {
+        conditionEvaluations[condition].increment();
+        if (passed) {
+            conditionPasses[condition].increment();
+        }
+    }
+
+    void ruleFired(int ruleIndex) {
+        ruleFires[ruleIndex].increment();
+    }
+
+    void conflictSetBuilt(int size) {
+        conflictSets.increment();
+        conflictSetTotal.add(size);
+        conflictSetMax.accumulate(size);
+    }
+
+    void forwardChainingFinished(int iterations, long nanos) {
+        forwardRuns.increment();
+        forwardIterations.add(iterations);
+        forwardNanos.add(nanos);
+    }
+
+    void backwardChainingFinished(int subgoalCount, int maxDepth, long nanos) {
+        backwardRuns.increment();
+        subgoals.add(subgoalCount);
+        recursionDepthMax.accumulate(maxDepth);
+        backwardNanos.add(nanos);
+    }
+
+    // Регистрация в платформенном MBean-сервере как ru.lab:type=RuleMetrics,name=<name>
+    ObjectName register(String name) {
+        try {
+            ObjectName objectName = objectName(name);
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось зарегистрировать метрики " + name, e);
+        }
+    }
+
+    static void unregister(String name) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = objectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Не удалось снять регистрацию метрик " + name, e);
+        }
+    }
+
+    private static ObjectName objectName(String name) throws MalformedObjectNameException {
+        return new ObjectName("ru.lab:type=RuleMetrics,name=" + ObjectName.quote(name));
+    }
+
+    record ConditionStats(Condition condition, long evaluations, long passes) {
+        double passRate() {
+            return evaluations == 0 ? 0 : (double) passes / evaluations;
+        }
+    }
+
+    record RuleStats(Rule rule, long fires, List<ConditionStats> conditions) {}
+
+    // Согласованный на момент чтения каждого счётчика снимок (не атомарный в целом)
+    record Snapshot(List<RuleStats> rules,
+                    long forwardRuns, long forwardIterations, long forwardNanos,
+                    long conflictSets, long conflictSetTotal, long maxConflictSetSize,
+                    long backwardRuns, long subgoals, long maxRecursionDepth, long backwardNanos) {
+
+        double averageIterations() {
+            return forwardRuns == 0 ? 0 : (double) forwardIterations / forwardRuns;
+        }
+
+        double averageConflictSetSize() {
+            return conflictSets == 0 ? 0 : (double) conflictSetTotal / conflictSets;
+        }
+
+        List<RuleStats> hotRules(int limit) {
+            return rules.stream()
+                    .filter(r -> r.fires > 0)
+                    .sorted(Comparator.comparingLong(RuleStats::fires).reversed())
+                    .limit(limit)
+                    .toList();
+        }
+
+        List<RuleStats> deadRules() {
+            return rules.stream().filter(r -> r.fires == 0).toList();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("прямой вывод: запусков %d, итераций %.1f в среднем, " +
+                            "конфликтное множество %.1f в среднем / %d макс., %.3f мс%n",
+                    forwardRuns, averageIterations(), averageConflictSetSize(), maxConflictSetSize,
+                    forwardNanos / 1e6));
+            sb.append(String.format("обратный вывод: запусков %d, подцелей %d, макс. глубина %d, %.3f мс%n",
+                    backwardRuns, subgoals, maxRecursionDepth, backwardNanos / 1e6));
+            for (RuleStats rule : rules) {
+                sb.append(String.format("%-40s срабатываний: %d%n", rule.rule.name, rule.fires));
+                for (ConditionStats cond : rule.conditions) {
+                    sb.append(String.format("    %-36s вычислений: %d, истинно: %.0f%%%n",
+                            cond.condition, cond.evaluations, cond.passRate() * 100));
+                }
+            }
+            return sb.toString();
+        }
+    }
+
+    Snapshot snapshot() {
+        List<RuleStats> ruleStats = new ArrayList<>(rules.size());
+        for (CompiledRule rule : rules) {
+            List<ConditionStats> conditions = new ArrayList<>(rule.conditionFacts.length);
+            for (int i = 0; i < rule.conditionFacts.length; i++) {
+                int c = condition(rule.index, i);
+                conditions.add(new ConditionStats(rule.rule.conditions.get(i),
+                        conditionEvaluations[c].sum(), conditionPasses[c].sum()));
+            }
+            ruleStats.add(new RuleStats(rule.rule, ruleFires[rule.index].sum(), List.copyOf(conditions)));
+        }
+        return new Snapshot(List.copyOf(ruleStats),
+                forwardRuns.sum(), forwardIterations.sum(), forwardNanos.sum(),
+                conflictSets.sum(), conflictSetTotal.sum(), conflictSetMax.get(),
+                backwardRuns.sum(), subgoals.sum(), recursionDepthMax.get(), backwardNanos.sum());
+    }
+
+    @Override
+    public long getForwardChainingRuns() {
+        return forwardRuns.sum();
+    }
+
+    @Override
+    public long getForwardChainingIterations() {
+        return forwardIterations.sum();
+    }
+
+    @Override
+    public double getAverageIterations() {
+        long runs = forwardRuns.sum();
+        return runs == 0 ? 0 : (double) forwardIterations.sum() / runs;
+    }
+
+    @Override
+    public double getAverageConflictSetSize() {
+        long count = conflictSets.sum();
+        return count == 0 ? 0 : (double) conflictSetTotal.sum() / count;
+    }
+
+    @Override
+    public long getMaxConflictSetSize() {
+        return conflictSetMax.get();
+    }
+
+    @Override
+    public long getForwardChainingNanos() {
+        return forwardNanos.sum();
+    }
+
+    @Override
+    public long getBackwardChainingRuns() {
+        return backwardRuns.sum();
+    }
+
+    @Override
+    public long getSubgoals() {
+        return subgoals.sum();
+    }
+
+    @Override
+    public long getMaxRecursionDepth() {
+        return recursionDepthMax.get();
+    }
+
+    @Override
+    public long getBackwardChainingNanos() {
+        return backwardNanos.sum();
+    }
+
+    @Override
+    public long getRuleFires() {
+        long total = 0;
+        for (LongAdder fires : ruleFires) {
+            total += fires.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public long getConditionEvaluations() {
+        long total = 0;
+        for (LongAdder evaluations : conditionEvaluations) {
+            total += evaluations.sum();
+        }
+        return total;
+    }
+
+    @Override
+    public String[] getHotRules() {
+        return snapshot().hotRules(TOP).stream()
+                .map(r -> r.rule.name + ": " + r.fires)
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getDeadRules() {
+        return snapshot().deadRules().stream()
+                .map(r -> r.rule.name)
+                .toArray(String[]::new);
+    }
+
+    @Override
+    public String[] getHotConditions() {
+        List<String> result = new ArrayList<>();
+        snapshot().rules.stream()
+                .flatMap(r -> r.conditions.stream().map(c -> Map.entry(r.rule, c)))
+                .sorted(Comparator.comparingLong(
+                        (Map.Entry<Rule, ConditionStats> e) -> e.getValue().evaluations).reversed())
+                .limit(TOP)
+                .forEach(e -> result.add(String.format("%s / %s: %d (%.0f%%)", e.getKey().name,
+                        e.getValue().condition, e.getValue().evaluations, e.getValue().passRate() * 100)));
+        return result.toArray(String[]::new);
+    }
+
+    @Override
+    public void reset() {
+        for (LongAdder adder : conditionEvaluations) adder.reset();
+        for (LongAdder adder : conditionPasses) adder.reset();
+        for (LongAdder adder : ruleFires) adder.reset();
+        forwardRuns.reset();
+        forwardIterations.reset();
+        forwardNanos.reset();
+        conflictSets.reset();
+        conflictSetTotal.reset();
+        conflictSetMax.reset();
+        backwardRuns.reset();
+        subgoals.reset();
+        backwardNanos.reset();
+        recursionDepthMax.reset();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.lab;
+
+// JMX-интерфейс RuleMetrics; должен быть public, иначе MBean-сервер его не примет
+public interface RuleMetricsMBean {
+    long getForwardChainingRuns();
+
+    long getForwardChainingIterations();
+
+    double getAverageIterations();
+
+    double getAverageConflictSetSize();
+
+    long getMaxConflictSetSize();
+
+    long getForwardChainingNanos();
+
+    long getBackwardChainingRuns();
+
+    long getSubgoals();
+
+    long getMaxRecursionDepth();
+
+    long getBackwardChainingNanos();
+
+    long getRuleFires();
+
+    long getConditionEvaluations();
+
+    // правила с наибольшим числом срабатываний: "имя: n"
+    String[] getHotRules();
+
+    // правила, не сработавшие ни разу
+    String[] getDeadRules();
+
+    // условия с наибольшим числом вычислений: "правило / условие: n (доля истинных)"
+    String[] getHotConditions();
+
+    void reset();
+}
@@ -0,0 +1,656 @@
+package ru.lab;
+
+import java.util.*;
+
+// Сессия консультации: рабочая память и состояние вывода поверх общей KnowledgeBase.
+// Сессия не потокобезопасна, но сессии одной базы независимы друг от друга.
+class Session implements InferenceSession {
+    private final KnowledgeBase knowledgeBase;
+    private final WorkingMemory workingMemory;
+    // правило, последним установившее факт; null - факт задан извне
+    private final CompiledRule[] justifications;
+    // посылки выведенного значения - факты условий сработавшего правила; условие на факте,
+    // который правило само перезаписывает, заменяется посылками его прежнего значения,
+    // а при перезаписи выведенного значения посылки прежнего сохраняются
+    private final int[][] supports;
+    // факт -> записи других фактов, опирающиеся на него (номер факта и метка времени записи);
+    // запись устаревает, когда факт перезаписан или удалён и его метка сменилась
+    private final Dependents[] dependents;
+    // значения, заданные извне и перезаписанные правилами; возвращаются при отзыве вывода
+    private final Map<Integer, Object> overridden = new HashMap<>();
+    // правила, затронутые retractFact/modifyFact и ожидающие propagate
+    private final BitSet pendingRules = new BitSet();
+    private ConflictResolutionStrategy strategy = ConflictResolutionStrategy.FIRST_MATCH;
+    private MatchingEngine matchingEngine = MatchingEngine.SCAN;
+    private int parallelThreshold = ScanMatcher.DEFAULT_PARALLEL_THRESHOLD;
+    private RuleMatcher matcher;
+    private Agenda agenda;
+    private Random random = new Random();
+    private final MatchStats matchStats = new MatchStats();
+    private InferenceListener listener;
+    private int lastIterations; // итераций последнего прямого вывода, для метрик
+
+    Session(KnowledgeBase knowledgeBase) {
+        this.knowledgeBase = knowledgeBase;
+        this.workingMemory = new WorkingMemory(knowledgeBase.facts());
+        this.justifications = new CompiledRule[knowledgeBase.facts().size()];
+        this.supports = new int[knowledgeBase.facts().size()][];
+        this.dependents = new Dependents[knowledgeBase.facts().size()];
+    }
+
+    // перенос рабочей памяти, обоснований выведенных фактов и настроек в сессию новой базы правил
+    Session(KnowledgeBase knowledgeBase, Session previous) {
+        this(knowledgeBase);
+        previous.workingMemory.toMap().forEach(workingMemory::set);
+        Map<Rule, CompiledRule> rules = new IdentityHashMap<>();
+        for (CompiledRule rule : knowledgeBase.compiledRules()) {
+            rules.put(rule.rule, rule);
+        }
+        FactTable oldFacts = previous.knowledgeBase.facts();
+        FactTable facts = knowledgeBase.facts();
+        for (int old = 0; old < previous.justifications.length; old++) {
+            CompiledRule rule = previous.justifications[old] == null ? null : rules.get(previous.justifications[old].rule);
+            int id = facts.id(oldFacts.name(old));
+            if (rule == null || id < 0 || !workingMemory.contains(id)) continue;
+            // новая база получена добавлением правил, так что все факты старой в ней есть
+            int[] premises = new int[previous.supports[old].length];
+            for (int i = 0; i < premises.length; i++) {
+                premises[i] = facts.id(oldFacts.name(previous.supports[old][i]));
+            }
+            justifications[id] = rule;
+            supports[id] = premises;
+            for (int premise : premises) {
+                addDependent(premise, id, workingMemory.timeTag(id));
+            }
+        }
+        previous.overridden.forEach((old, value) -> {
+            int id = facts.id(oldFacts.name(old));
+            if (id >= 0 && justifications[id] != null) {
+                overridden.put(id, value);
+            }
+        });
+        strategy = previous.strategy;
+        random = previous.random;
+        matchingEngine = previous.matchingEngine;
+        parallelThreshold = previous.parallelThreshold;
+        listener = previous.listener;
+        matchStats.add(previous.matchStats);
+    }
+
+    @Override
+    public void setFact(String name, Object value) {
+        workingMemory.set(name, value);
+        if (listener != null) {
+            listener.factSet(name, value, null);
+        }
+        int id = knowledgeBase.facts().id(name);
+        if (id >= 0) {
+            justifications[id] = null;
+            supports[id] = null;
+            overridden.remove(id);
+            if (matcher != null) {
+                matcher.factChanged(id);
+            }
+        }
+    }
+
+    // Удаляет факт и все выведенные из него факты.
+    // Правила, которые могут сработать иначе, запускаются вызовом propagate.
+    public void retractFact(String name) {
+        int id = knowledgeBase.facts().id(name);
+        if (id < 0) {
+            if (workingMemory.contains(name)) {
+                workingMemory.remove(name);
+                if (listener != null) {
+                    listener.factRetracted(name);
+                }
+            }
+            return;
+        }
+        // значение, выведенное поверх заданного, остаётся, если оно от заданного не зависит;
+        // отзываются только выводы, сделанные из него
+        if (overridden.containsKey(id)) {
+            overridden.remove(id);
+            if (!contains(supports[id], id)) {
+                retractDependents(id);
+                return;
+            }
+        }
+        if (workingMemory.contains(id)) {
+            retract(id);
+        }
+    }
+
+    // Заменяет значение факта, отзывая выведенные из старого значения факты
+    public void modifyFact(String name, Object value) {
+        int id = knowledgeBase.facts().id(name);
+        if (id >= 0) {
+            retractDependents(id);
+            markAffected(id);
+        }
+        setFact(name, value);
+    }
+
+    // Прямой вывод только по правилам, затронутым изменениями с прошлого propagate,
+    // и по правилам, читающим факты, которые изменятся по ходу вывода
+    public boolean propagate(Set<String> goals) {
+        BitSet rules = (BitSet) pendingRules.clone();
+        pendingRules.clear();
+        // правила, пишущие те же факты, снова конкурируют в агенде,
+        // чтобы последнее слово осталось за тем же правилом, что и при полном выводе
+        for (int i = rules.nextSetBit(0); i >= 0; i = rules.nextSetBit(i + 1)) {
+            for (int fact : knowledgeBase.compiledRules().get(i).actionFacts) {
+                for (CompiledRule producer : knowledgeBase.producers(fact)) {
+                    rules.set(producer.index);
+                }
+            }
+        }
+        return runForward(goals, rules);
+    }
+
+    // выведенное значение, перекрывшее заданное извне, уступает место прежнему
+    private void retract(int id) {
+        justifications[id] = null;
+        supports[id] = null;
+        if (overridden.containsKey(id)) {
+            Object value = overridden.remove(id);
+            workingMemory.set(id, value);
+            if (listener != null) {
+                listener.factSet(knowledgeBase.facts().name(id), value, null);
+            }
+        } else {
+            workingMemory.remove(id);
+            if (listener != null) {
+                listener.factRetracted(knowledgeBase.facts().name(id));
+            }
+        }
+        if (matcher != null) {
+            matcher.factChanged(id);
+        }
+        markAffected(id);
+        retractDependents(id);
+    }
+
+    // отзывает записи, опиравшиеся на факт, если они не перезаписаны с тех пор
+    private void retractDependents(int id) {
+        Dependents list = dependents[id];
+        if (list == null) return;
+        dependents[id] = null;
+        for (int i = 0; i < list.size; i++) {
+            int fact = list.facts[i];
+            if (workingMemory.timeTag(fact) == list.tags[i]) {
+                retract(fact);
+            }
+        }
+    }
+
+    private static final class Dependents {
+        int[] facts = new int[4];
+        long[] tags = new long[4];
+        int size;
+    }
+
+    private void addDependent(int premise, int fact, long tag) {
+        Dependents list = dependents[premise];
+        if (list == null) {
+            list = new Dependents();
+            dependents[premise] = list;
+        }
+        if (list.size == list.facts.length) {
+            // устаревшие записи выбрасываются до расширения
+            int j = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (workingMemory.timeTag(list.facts[i]) == list.tags[i]) {
+                    list.facts[j] = list.facts[i];
+                    list.tags[j++] = list.tags[i];
+                }
+            }
+            list.size = j;
+            if (j > list.facts.length / 2) {
+                list.facts = Arrays.copyOf(list.facts, j * 2);
+                list.tags = Arrays.copyOf(list.tags, j * 2);
+            }
+        }
+        list.facts[list.size] = fact;
+        list.tags[list.size++] = tag;
+    }
+
+    // посылки срабатывания правила, см. supports
+    private int[] premises(CompiledRule rule) {
+        boolean selfRead = false;
+        for (int condition : rule.conditionFacts) {
+            selfRead |= justifications[condition] != null && contains(rule.actionFacts, condition);
+        }
+        if (!selfRead) {
+            return rule.conditionFacts;
+        }
+        Set<Integer> premises = new LinkedHashSet<>();
+        for (int condition : rule.conditionFacts) {
+            if (justifications[condition] != null && contains(rule.actionFacts, condition)) {
+                for (int premise : supports[condition]) {
+                    premises.add(premise);
+                }
+            } else {
+                premises.add(condition);
+            }
+        }
+        return premises.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        int size = a.length;
+        for (int fact : b) {
+            if (!contains(a, fact)) {
+                result[size++] = fact;
+            }
+        }
+        return size == a.length ? a : Arrays.copyOf(result, size);
+    }
+
+    private static boolean contains(int[] facts, int fact) {
+        for (int f : facts) {
+            if (f == fact) return true;
+        }
+        return false;
+    }
+
+    // читатели факта могут стать применимыми, производители - вывести его заново
+    private void markAffected(int id) {
+        for (int r : knowledgeBase.readers(id)) {
+            pendingRules.set(r);
+        }
+        for (CompiledRule producer : knowledgeBase.producers(id)) {
+            pendingRules.set(producer.index);
+        }
+    }
+
+    @Override
+    public boolean forwardChaining(Set<String> goals) {
+        pendingRules.clear();
+        return runForward(goals, null);
+    }
+
+    private boolean runForward(Set<String> goals, BitSet rules) {
+        RuleMetrics metrics = metrics();
+        if (metrics == null) {
+            return runForwardLoop(goals, rules);
+        }
+        long start = System.nanoTime();
+        try {
+            return runForwardLoop(goals, rules);
+        } finally {
+            metrics.forwardChainingFinished(lastIterations, System.nanoTime() - start);
+        }
+    }
+
+    // rules == null - обычный прогон по всем правилам;
+    // иначе доступны только rules, а изменённые факты открывают своих читателей.
+    // goals == null - вывод до насыщения, результат - достигнуто ли насыщение
+    private boolean runForwardLoop(Set<String> goals, BitSet rules) {
+        if (listener != null) {
+            listener.forwardChainingStarted();
+        }
+        int iteration = 0;
+        int[] goalIds = goals == null ? null : goalIds(goals);
+        boolean incremental = rules != null;
+
+        RuleMatcher matcher = matcher();
+        if (incremental) {
+            matcher.startRun(rules);
+        } else {
+            matcher.startRun();
+        }
+
+        while (iteration < 100) {
+            iteration++;
+            lastIterations = iteration;
+            if (listener != null) {
+                listener.iterationStarted(iteration);
+            }
+
+            List<CompiledRule> applicableRules = matcher.applicableRules();
+            if (matchStats.metrics != null) {
+                matchStats.metrics.conflictSetBuilt(applicableRules.size());
+            }
+
+            if (listener != null) {
+                listener.conflictSetBuilt(iteration, applicableRules.size());
+            }
+
+            if (applicableRules.isEmpty()) {
+                if (listener != null) {
+                    listener.iterationEnded(iteration, 0);
+                }
+                if (goals == null) {
+                    return true;
+                }
+                break;
+            }
+
+            Agenda agenda = agenda();
+            agenda.load(applicableRules, workingMemory);
+
+            int fired = 0;
+            while (!agenda.isEmpty()) {
+                CompiledRule selectedRule = resolveConflict(agenda);
+
+                fireRule(selectedRule, incremental);
+                fired++;
+
+                matcher.ruleFired(selectedRule);
+
+                if (goals != null && goalsAchieved(goals, goalIds)) {
+                    if (listener != null) {
+                        listener.iterationEnded(iteration, fired);
+                        listener.goalsReached(goals, iteration);
+                    }
+                    return true;
+                }
+            }
+
+            if (listener != null) {
+                listener.iterationEnded(iteration, fired);
+            }
+        }
+
+        if (listener != null && goals != null) {
+            listener.forwardChainingFailed(iteration);
+        }
+        return false;
+    }
+
+    public boolean backwardChaining(String goal) {
+        RuleMetrics metrics = metrics();
+        if (metrics == null) {
+            return backwardChaining(goal, null);
+        }
+        long start = System.nanoTime();
+        GoalTable table = new GoalTable(knowledgeBase.facts().size());
+        try {
+            return backwardChaining(goal, table);
+        } finally {
+            metrics.backwardChainingFinished(table.subgoals, table.maxDepth, System.nanoTime() - start);
+        }
+    }
+
+    private boolean backwardChaining(String goal, GoalTable table) {
+        if (listener != null) {
+            listener.backwardChainingStarted(goal);
+        }
+
+        int id = knowledgeBase.facts().id(goal);
+        if (id < 0) {
+            // факт не встречается в правилах: вывести его нечем
+            if (workingMemory.contains(goal)) {
+                Object value = workingMemory.get(goal);
+                if (listener != null) {
+                    listener.goalKnown(goal, value);
+                }
+                return value != null && !Boolean.FALSE.equals(value);
+            }
+            if (listener != null) {
+                listener.noRulesForGoal(goal);
+            }
+            return false;
+        }
+        if (table == null) {
+            table = new GoalTable(knowledgeBase.facts().size());
+        }
+        return backwardChainingRecursive(id, table, 0);
+    }
+
+    // Таблица подцелей одного запроса обратного вывода.
+    // Доказанные подцели запоминает сама рабочая память (правило устанавливает факт),
+    // здесь хранятся окончательные неудачи и подцели на текущем пути для поиска циклов.
+    private static final class GoalTable {
+        static final byte UNKNOWN = 0;
+        static final byte ON_PATH = 1;
+        static final byte FAILED = 2;
+
+        final byte[] status;
+        final int[] depth;
+        // наименьшая глубина цели на пути, в которую упёрся цикл;
+        // неудача ниже неё зависит от незавершённой цели и не запоминается
+        int cycleDepth = Integer.MAX_VALUE;
+        int subgoals;   // вызовов для подцелей, включая саму цель
+        int maxDepth;
+
+        GoalTable(int size) {
+            status = new byte[size];
+            depth = new int[size];
+        }
+    }
+
+    private boolean backwardChainingRecursive(int goal, GoalTable table, int depth) {
+        table.subgoals++;
+        table.maxDepth = Math.max(table.maxDepth, depth);
+        if (workingMemory.contains(goal)) {
+            if (listener != null) {
+                listener.goalKnown(knowledgeBase.facts().name(goal), workingMemory.get(goal));
+            }
+            return workingMemory.isTrue(goal);
+        }
+
+        if (table.status[goal] == GoalTable.ON_PATH) {
+            if (listener != null) {
+                listener.cycleDetected(knowledgeBase.facts().name(goal));
+            }
+            table.cycleDepth = Math.min(table.cycleDepth, table.depth[goal]);
+            return false;
+        }
+        if (table.status[goal] == GoalTable.FAILED) {
+            if (listener != null) {
+                listener.goalFailedBefore(knowledgeBase.facts().name(goal));
+            }
+            return false;
+        }
+
+        List<CompiledRule> rulesProducingGoal = knowledgeBase.producers(goal);
+        if (rulesProducingGoal.isEmpty()) {
+            if (listener != null) {
+                listener.noRulesForGoal(knowledgeBase.facts().name(goal));
+            }
+            table.status[goal] = GoalTable.FAILED;
+            return false;
+        }
+
+        table.status[goal] = GoalTable.ON_PATH;
+        table.depth[goal] = depth;
+        boolean proved = false;
+        for (CompiledRule rule : rulesProducingGoal) {
+            if (listener != null) {
+                listener.ruleTried(rule.rule, knowledgeBase.facts().name(goal));
+            }
+
+            boolean allConditionsMet = true;
+            for (int fact : rule.conditionFacts) {
+                if (!backwardChainingRecursive(fact, table, depth + 1)) {
+                    allConditionsMet = false;
+                    break;
+                }
+            }
+
+            if (allConditionsMet) {
+                if (listener != null) {
+                    listener.ruleConditionsMet(rule.rule);
+                }
+                fireRule(rule, false);
+                proved = true;
+                break;
+            }
+        }
+
+        if (!proved && listener != null) {
+            listener.goalFailed(knowledgeBase.facts().name(goal));
+        }
+        // неудача окончательна, только если все циклы замкнулись внутри этой цели;
+        // успех не отменяет зависимости неудачных соседних подцелей от предков
+        if (!proved && table.cycleDepth >= depth) {
+            table.status[goal] = GoalTable.FAILED;
+            table.cycleDepth = Integer.MAX_VALUE;
+        } else {
+            table.status[goal] = GoalTable.UNKNOWN;
+        }
+        return proved;
+    }
+
+    private void fireRule(CompiledRule rule, boolean reopenReaders) {
+        if (listener != null) {
+            listener.ruleFired(rule.rule);
+        }
+        if (matchStats.metrics != null) {
+            matchStats.metrics.ruleFired(rule.index);
+        }
+        int[] premises = premises(rule);
+        for (int i = 0; i < rule.actionFacts.length; i++) {
+            int fact = rule.actionFacts[i];
+            boolean changed = reopenReaders
+                    && !(workingMemory.contains(fact) && Objects.equals(workingMemory.get(fact), rule.actionValues[i]));
+            if (justifications[fact] == null && workingMemory.contains(fact)) {
+                overridden.put(fact, workingMemory.get(fact));
+            }
+            workingMemory.set(fact, rule.actionValues[i]);
+            // новое значение могло опираться на прежнее через другие факты,
+            // поэтому посылки прежнего выведенного значения сохраняются
+            int[] factPremises = justifications[fact] == null ? premises : union(premises, supports[fact]);
+            justifications[fact] = rule;
+            supports[fact] = factPremises;
+            for (int premise : factPremises) {
+                addDependent(premise, fact, workingMemory.timeTag(fact));
+            }
+            if (listener != null) {
+                listener.factSet(rule.rule.actions.get(i).factName, rule.actionValues[i], rule.rule);
+            }
+            if (matcher != null) {
+                matcher.factChanged(fact);
+                if (changed) {
+                    for (int r : knowledgeBase.readers(fact)) {
+                        if (r != rule.index) {
+                            matcher.makeAvailable(r);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // счётчики могли быть включены после создания сессии
+    private RuleMetrics metrics() {
+        matchStats.metrics = knowledgeBase.metrics();
+        return matchStats.metrics;
+    }
+
+    private RuleMatcher matcher() {
+        if (matcher == null) {
+            matcher = switch (matchingEngine) {
+                case SCAN -> new ScanMatcher(knowledgeBase.compiledRules(), workingMemory, matchStats,
+                        parallelThreshold);
+                case INDEXED -> new IndexedMatcher(knowledgeBase.conditionIndex(), workingMemory, matchStats);
+                case RETE -> new ReteMatcher(knowledgeBase.reteNetwork(), workingMemory, matchStats);
+            };
+        }
+        return matcher;
+    }
+
+    private Agenda agenda() {
+        if (agenda == null) {
+            agenda = Agenda.create(strategy, random);
+        }
+        return agenda;
+    }
+
+    private CompiledRule resolveConflict(Agenda agenda) {
+        int size = agenda.size();
+        CompiledRule selected = agenda.poll();
+
+        if (listener != null) {
+            listener.conflictResolved(size, selected.rule);
+        }
+        return selected;
+    }
+
+    private int[] goalIds(Set<String> goals) {
+        int[] ids = new int[goals.size()];
+        int i = 0;
+        for (String goal : goals) {
+            ids[i++] = knowledgeBase.facts().id(goal);
+        }
+        return ids;
+    }
+
+    // goalIds в порядке обхода goals; -1 - цели нет среди фактов базы
+    private boolean goalsAchieved(Set<String> goals, int[] goalIds) {
+        int i = 0;
+        for (String goal : goals) {
+            int id = goalIds[i++];
+            if (id >= 0 ? !workingMemory.isTrue(id) : !workingMemory.isTrue(goal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void setStrategy(ConflictResolutionStrategy strategy) {
+        this.strategy = strategy;
+        this.agenda = null;
+    }
+
+    ConflictResolutionStrategy strategy() {
+        return strategy;
+    }
+
+    MatchingEngine matchingEngine() {
+        return matchingEngine;
+    }
+
+    public void setRandomSeed(long seed) {
+        this.random = new Random(seed);
+        this.agenda = null;
+    }
+
+    public void setMatchingEngine(MatchingEngine matchingEngine) {
+        this.matchingEngine = matchingEngine;
+        this.matcher = null;
+    }
+
+    // с какого числа доступных правил SCAN перебирает их параллельно; Integer.MAX_VALUE - никогда
+    public void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+        this.matcher = null;
+    }
+
+    public void addListener(InferenceListener listener) {
+        if (this.listener == null) {
+            this.listener = listener;
+        } else {
+            this.listener = new CompositeInferenceListener(this.listener, listener);
+        }
+    }
+
+    KnowledgeBase knowledgeBase() {
+        return knowledgeBase;
+    }
+
+    @Override
+    public Object getFact(String name) {
+        return workingMemory.get(name);
+    }
+
+    @Override
+    public Map<String, Object> getWorkingMemory() {
+        return workingMemory.toMap();
+    }
+
+    public MatchStats getMatchStats() {
+        return matchStats;
+    }
+
+    @Override
+    public void printWorkingMemory() {
+        System.out.println("\n=== РАБОЧАЯ ПАМЯТЬ ===");
+        for (Map.Entry<String, Object> entry : workingMemory.toMap().entrySet()) {
+            System.out.println(entry.getKey() + " = " + entry.getValue());
+        }
+    }
+}
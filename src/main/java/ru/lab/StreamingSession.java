@@ -0,0 +1,237 @@
+package ru.lab;
+
+import java.io.Closeable;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Факт потока с меткой времени события, мс
+record TimedFact(String name, Object value, long timestamp) {}
+
+// Потоковая сессия: факты поступают из любых потоков в ограниченную очередь
+// (offer не ждёт, put ждёт свободного места), обработчик забирает их пачками
+// и после каждой пачки дозапускает вывод только по затронутым правилам (propagate).
+// Время задаётся метками событий: факт живёт timeToLive мс от своей метки
+// и отзывается вместе с выведенными из него фактами, когда самая поздняя
+// метка потока уходит дальше. Так рабочая память не растёт со временем работы.
+// Обработка идёт либо в потоке, вызывающем processPending, либо в фоновом потоке start().
+final class StreamingSession implements Closeable {
+    private static final long POLL_MILLIS = 100;
+
+    private record FactState(long timestamp, long deadline) {}
+
+    private record Expiry(long deadline, String name) {}
+
+    private final Session session;
+    private final BlockingQueue<TimedFact> queue;
+    private final int maxBatch;
+    private final long defaultTimeToLive;               // <= 0 - факты не истекают
+    private final Map<String, Long> timeToLive = new HashMap<>();
+    private final Map<String, FactState> states = new HashMap<>();
+    private final PriorityQueue<Expiry> expiries = new PriorityQueue<>(Comparator.comparingLong(Expiry::deadline));
+    private final Object lock = new Object();
+
+    private long watermark = Long.MIN_VALUE;
+    private boolean saturated;
+    private Thread worker;
+    private volatile boolean closed;
+
+    private long processed;
+    private long batches;
+    private long expired;
+    private long late;
+
+    StreamingSession(KnowledgeBase knowledgeBase, int capacity, int maxBatch, long defaultTimeToLive) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Размер очереди и пачки должны быть положительными");
+        }
+        this.session = knowledgeBase.newSession();
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.defaultTimeToLive = defaultTimeToLive;
+    }
+
+    // отдельное время жизни для факта; <= 0 - факт не истекает
+    void setTimeToLive(String name, long millis) {
+        synchronized (lock) {
+            timeToLive.put(name, millis);
+        }
+    }
+
+    void setStrategy(ConflictResolutionStrategy strategy) {
+        synchronized (lock) {
+            session.setStrategy(strategy);
+        }
+    }
+
+    void setMatchingEngine(MatchingEngine matchingEngine) {
+        synchronized (lock) {
+            session.setMatchingEngine(matchingEngine);
+        }
+    }
+
+    void addListener(InferenceListener listener) {
+        synchronized (lock) {
+            session.addListener(listener);
+        }
+    }
+
+    // false - очередь заполнена, факт не принят
+    boolean offer(String name, Object value, long timestamp) {
+        return queue.offer(new TimedFact(name, value, timestamp));
+    }
+
+    boolean offer(TimedFact fact, long timeout, TimeUnit unit) throws InterruptedException {
+        return queue.offer(fact, timeout, unit);
+    }
+
+    void put(TimedFact fact) throws InterruptedException {
+        queue.put(fact);
+    }
+
+    // обработка не более одной пачки из очереди; число обработанных фактов
+    int processPending() {
+        List<TimedFact> batch = new ArrayList<>(Math.min(maxBatch, queue.size()));
+        queue.drainTo(batch, maxBatch);
+        if (!batch.isEmpty()) {
+            process(batch);
+        }
+        return batch.size();
+    }
+
+    // продвижение времени без новых фактов, например по таймеру
+    void advanceTo(long timestamp) {
+        synchronized (lock) {
+            watermark = Math.max(watermark, timestamp);
+            expire();
+            run();
+        }
+    }
+
+    void start() {
+        synchronized (lock) {
+            if (worker != null) {
+                throw new IllegalStateException("Обработчик потока уже запущен");
+            }
+            worker = new Thread(this::processLoop, "streaming-session");
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    private void processLoop() {
+        List<TimedFact> batch = new ArrayList<>(maxBatch);
+        try {
+            while (!closed) {
+                TimedFact first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                process(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void process(List<TimedFact> batch) {
+        synchronized (lock) {
+            for (TimedFact fact : batch) {
+                apply(fact);
+            }
+            expire();
+            run();
+            batches++;
+        }
+    }
+
+    // Запоздавший факт (уже истёк или старше текущего значения) отбрасывается
+    private void apply(TimedFact fact) {
+        long ttl = timeToLive.getOrDefault(fact.name(), defaultTimeToLive);
+        long deadline = ttl > 0 ? fact.timestamp() + ttl : Long.MAX_VALUE;
+        FactState state = states.get(fact.name());
+        if (deadline <= watermark || (state != null && fact.timestamp() < state.timestamp)) {
+            late++;
+            return;
+        }
+        watermark = Math.max(watermark, fact.timestamp());
+        session.modifyFact(fact.name(), fact.value());
+        states.put(fact.name(), new FactState(fact.timestamp(), deadline));
+        if (ttl > 0) {
+            expiries.add(new Expiry(deadline, fact.name()));
+        }
+        processed++;
+    }
+
+    // записи о сроках, перекрытые более новым значением факта, пропускаются
+    private void expire() {
+        while (!expiries.isEmpty() && expiries.peek().deadline <= watermark) {
+            Expiry expiry = expiries.poll();
+            FactState state = states.get(expiry.name);
+            if (state != null && state.deadline == expiry.deadline) {
+                states.remove(expiry.name);
+                session.retractFact(expiry.name);
+                expired++;
+            }
+        }
+    }
+
+    // первый запуск - полный вывод, дальше только по затронутым правилам
+    private void run() {
+        if (saturated) {
+            session.propagate(null);
+        } else {
+            session.forwardChaining(null);
+            saturated = true;
+        }
+    }
+
+    Object getFact(String name) {
+        synchronized (lock) {
+            return session.getFact(name);
+        }
+    }
+
+    Map<String, Object> getWorkingMemory() {
+        synchronized (lock) {
+            return session.getWorkingMemory();
+        }
+    }
+
+    long watermark() {
+        synchronized (lock) {
+            return watermark;
+        }
+    }
+
+    int queued() {
+        return queue.size();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        Thread thread;
+        synchronized (lock) {
+            thread = worker;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (lock) {
+            return "обработано: " + processed + ", пачек: " + batches + ", истекло: " + expired
+                    + ", отброшено запоздавших: " + late + ", в очереди: " + queue.size();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package ru.lab;
+
+import java.util.*;
+
+// Имена фактов базы правил, пронумерованные подряд при компиляции
+final class FactTable {
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> names = new ArrayList<>();
+
+    int intern(String name) {
+        Integer id = ids.get(name);
+        if (id != null) return id;
+        ids.put(name, names.size());
+        names.add(name);
+        return names.size() - 1;
+    }
+
+    // -1, если факт не встречается в правилах
+    int id(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    String name(int id) {
+        return names.get(id);
+    }
+
+    int size() {
+        return names.size();
+    }
+}
+
+// Рабочая память сессии: слот на каждый факт из FactTable.
+// Целые и вещественные значения лежат в long/double слотах, логические - в BitSet,
+// поэтому проверка условий не хеширует имена и не распаковывает значения.
+// Факты, которых нет в правилах, хранятся отдельно по имени.
+final class WorkingMemory {
+    static final byte ABSENT = 0;
+    static final byte NULL = 1;
+    static final byte INT = 2;
+    static final byte LONG = 3;
+    static final byte DOUBLE = 4;
+    static final byte BOOLEAN = 5;
+    static final byte OBJECT = 6;
+
+    private final FactTable facts;
+    private final byte[] kinds;
+    private final long[] longs;
+    private final double[] doubles;
+    private final BitSet booleans;
+    private final Object[] objects;
+    private final long[] timeTags; // момент последней записи, для стратегий по свежести
+    private long clock;
+    private final Map<String, Object> other = new HashMap<>();
+
+    WorkingMemory(FactTable facts) {
+        int size = facts.size();
+        this.facts = facts;
+        this.kinds = new byte[size];
+        this.longs = new long[size];
+        this.doubles = new double[size];
+        this.booleans = new BitSet(size);
+        this.objects = new Object[size];
+        this.timeTags = new long[size];
+    }
+
+    static byte kindOf(Object value) {
+        if (value == null) return NULL;
+        if (value instanceof Integer) return INT;
+        if (value instanceof Long) return LONG;
+        if (value instanceof Double) return DOUBLE;
+        if (value instanceof Boolean) return BOOLEAN;
+        return OBJECT;
+    }
+
+    void set(int id, Object value) {
+        byte kind = kindOf(value);
+        kinds[id] = kind;
+        objects[id] = null;
+        timeTags[id] = ++clock;
+        switch (kind) {
+            case INT -> longs[id] = (Integer) value;
+            case LONG -> longs[id] = (Long) value;
+            case DOUBLE -> doubles[id] = (Double) value;
+            case BOOLEAN -> booleans.set(id, (Boolean) value);
+            case OBJECT -> objects[id] = value;
+            default -> { }
+        }
+    }
+
+    void setLong(int id, long value) {
+        kinds[id] = LONG;
+        objects[id] = null;
+        timeTags[id] = ++clock;
+        longs[id] = value;
+    }
+
+    void setDouble(int id, double value) {
+        kinds[id] = DOUBLE;
+        objects[id] = null;
+        timeTags[id] = ++clock;
+        doubles[id] = value;
+    }
+
+    void setBoolean(int id, boolean value) {
+        kinds[id] = BOOLEAN;
+        objects[id] = null;
+        timeTags[id] = ++clock;
+        booleans.set(id, value);
+    }
+
+    void remove(int id) {
+        kinds[id] = ABSENT;
+        objects[id] = null;
+        timeTags[id] = 0;
+    }
+
+    boolean contains(int id) {
+        return kinds[id] != ABSENT;
+    }
+
+    long timeTag(int id) {
+        return timeTags[id];
+    }
+
+    byte kind(int id) {
+        return kinds[id];
+    }
+
+    long getLong(int id) {
+        return longs[id];
+    }
+
+    double getDouble(int id) {
+        return doubles[id];
+    }
+
+    boolean getBoolean(int id) {
+        return booleans.get(id);
+    }
+
+    Object get(int id) {
+        return switch (kinds[id]) {
+            case INT -> (int) longs[id];
+            case LONG -> longs[id];
+            case DOUBLE -> doubles[id];
+            case BOOLEAN -> booleans.get(id);
+            case OBJECT -> objects[id];
+            default -> null;
+        };
+    }
+
+    // значение "истинно" для целей: задано, не null и не false
+    boolean isTrue(int id) {
+        return switch (kinds[id]) {
+            case ABSENT, NULL -> false;
+            case BOOLEAN -> booleans.get(id);
+            default -> true;
+        };
+    }
+
+    boolean test(int id, ConditionPredicate predicate) {
+        return switch (kinds[id]) {
+            case INT -> predicate.testInt((int) longs[id]);
+            case LONG -> predicate.testLong(longs[id]);
+            case DOUBLE -> predicate.testDouble(doubles[id]);
+            case BOOLEAN -> predicate.testBoolean(booleans.get(id));
+            case OBJECT -> predicate.test(objects[id]);
+            default -> false;
+        };
+    }
+
+    FactTable facts() {
+        return facts;
+    }
+
+    // доступ по имени для фактов, заданных извне
+
+    void set(String name, Object value) {
+        int id = facts.id(name);
+        if (id >= 0) {
+            set(id, value);
+        } else {
+            other.put(name, value);
+        }
+    }
+
+    void remove(String name) {
+        int id = facts.id(name);
+        if (id >= 0) {
+            remove(id);
+        } else {
+            other.remove(name);
+        }
+    }
+
+    boolean contains(String name) {
+        int id = facts.id(name);
+        return id >= 0 ? contains(id) : other.containsKey(name);
+    }
+
+    Object get(String name) {
+        int id = facts.id(name);
+        return id >= 0 ? get(id) : other.get(name);
+    }
+
+    boolean isTrue(String name) {
+        int id = facts.id(name);
+        if (id >= 0) return isTrue(id);
+        Object value = other.get(name);
+        return value != null && !Boolean.FALSE.equals(value);
+    }
+
+    Map<String, Object> toMap() {
+        Map<String, Object> map = new HashMap<>(other);
+        for (int id = 0; id < kinds.length; id++) {
+            if (kinds[id] != ABSENT) {
+                map.put(facts.name(id), get(id));
+            }
+        }
+        return map;
+    }
+}
@@ -0,0 +1,54 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BackwardChainingTest {
+
+    // G ← Z, A;  Z ← A | E;  A ← D | B2, C;  D ← Z;  B2;  E задан.
+    // Первая попытка A упирается в цикл A → D → Z, а вторая - в C, которого нет;
+    // доказанная по пути B2 не должна делать неудачу A окончательной, пока Z не доказана через E.
+    private static ProductionSystem cycleThroughAncestor(boolean withB2) {
+        List<Rule> rules = new ArrayList<>();
+        rules.add(rule("RG1", List.of("Z", "A"), "G"));
+        rules.add(rule("R1", List.of("A"), "Z"));
+        rules.add(rule("R2", List.of("E"), "Z"));
+        rules.add(rule("RA1", List.of("D"), "A"));
+        rules.add(rule("RA2", List.of("B2", "C"), "A"));
+        rules.add(rule("RD", List.of("Z"), "D"));
+        if (withB2) {
+            rules.add(rule("RB2", List.of(), "B2"));
+        }
+        ProductionSystem system = new ProductionSystem();
+        rules.forEach(system::addRule);
+        system.setFact("E", true);
+        return system;
+    }
+
+    @Test
+    void provedSiblingKeepsCycleDependency() {
+        assertTrue(cycleThroughAncestor(false).backwardChaining("G"));
+        assertTrue(cycleThroughAncestor(true).backwardChaining("G"));
+    }
+
+    @Test
+    void goalWithoutProducersFails() {
+        ProductionSystem system = new ProductionSystem();
+        system.addRule(rule("R", List.of("X"), "Y"));
+        assertFalse(system.backwardChaining("Y"));
+        system.setFact("X", true);
+        assertTrue(system.backwardChaining("Y"));
+    }
+
+    private static Rule rule(String name, List<String> premises, String conclusion) {
+        List<Condition> conditions = new ArrayList<>();
+        for (String premise : premises) {
+            conditions.add(new Condition(premise, "=", true));
+        }
+        return new Rule(name, conditions, List.of(new Action(conclusion, true)), 0);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CdclSolverTest {
+
+    @Test
+    void agreesWithResolution() {
+        List<String> mismatches = new ArrayList<>();
+        for (SatCorpus.Problem problem : SatCorpus.problems()) {
+            boolean unsatisfiable = ResolutionMethod.resolution(problem.clauses());
+            CdclSolver solver = new CdclSolver(problem.clauses());
+            boolean satisfiable = solver.solve();
+            if (satisfiable == unsatisfiable) {
+                mismatches.add(problem + ": resolution " + (unsatisfiable ? "невыполнимо" : "выполнимо"));
+            } else if (satisfiable && !satisfies(solver, problem.clauses())) {
+                mismatches.add(problem + ": модель не выполняет дизъюнкты");
+            }
+        }
+        assertEquals(List.of(), mismatches);
+    }
+
+    @Test
+    void atomsOutsideClausesAreFalse() {
+        List<Clause> clauses = SatCorpus.chain(3, false);
+        CdclSolver solver = new CdclSolver(clauses);
+        assertTrue(solver.solve());
+        assertTrue(solver.modelValue(Atoms.intern("c3")));
+        assertFalse(solver.modelValue(Atoms.intern("вне задачи")));
+    }
+
+    private static boolean satisfies(CdclSolver solver, List<Clause> clauses) {
+        for (Clause clause : clauses) {
+            boolean satisfied = false;
+            for (int literal : clause.literals) {
+                satisfied |= solver.modelValue(Clause.atom(literal)) != Clause.isNegative(literal);
+            }
+            if (!satisfied) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,101 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+import ru.lab.ResolutionMethod.CnfMode;
+import ru.lab.ResolutionMethod.Formula;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CnfEncoderTest {
+    private static final String[] VARIABLES = {"a", "b", "c", "d"};
+
+    @Test
+    void encodingsAreEquisatisfiableWithDistributive() {
+        Random random = new Random(11);
+        List<String> mismatches = new ArrayList<>();
+        for (int trial = 0; trial < 2000; trial++) {
+            Formula formula = randomFormula(random, 1 + random.nextInt(4));
+            boolean expected = satisfiable(formula.toCNF().toClauses());
+            for (CnfMode mode : new CnfMode[]{CnfMode.DEFINITIONAL, CnfMode.AUTO}) {
+                try (Atoms.Scope scope = new Atoms.Scope()) {
+                    if (satisfiable(formula.toClauses(mode, scope)) != expected) {
+                        mismatches.add(mode + " " + formula);
+                    }
+                }
+            }
+        }
+        assertEquals(List.of(), mismatches);
+    }
+
+    // Модели кодировки с определениями, ограниченные на переменные формулы, - ровно модели формулы
+    @Test
+    void definitionalModelsProjectToFormulaModels() {
+        Random random = new Random(12);
+        List<String> mismatches = new ArrayList<>();
+        for (int trial = 0; trial < 500; trial++) {
+            Formula formula = randomFormula(random, 1 + random.nextInt(4));
+            try (Atoms.Scope scope = new Atoms.Scope()) {
+                List<Clause> clauses = formula.toClauses(CnfMode.DEFINITIONAL, scope);
+                for (int mask = 0; mask < 1 << VARIABLES.length; mask++) {
+                    List<Clause> fixed = new ArrayList<>(clauses);
+                    Map<String, Boolean> assignment = new HashMap<>();
+                    for (int v = 0; v < VARIABLES.length; v++) {
+                        boolean value = (mask >> v & 1) != 0;
+                        assignment.put(VARIABLES[v], value);
+                        fixed.add(Clause.of(Clause.literal(Atoms.intern(VARIABLES[v]), !value)));
+                    }
+                    if (satisfiable(fixed) != evaluate(formula, assignment)) {
+                        mismatches.add(formula + " " + assignment);
+                    }
+                }
+            }
+        }
+        assertEquals(List.of(), mismatches);
+    }
+
+    @Test
+    void autoKeepsSmallFormulasDistributive() {
+        Formula formula = Formula.or(Formula.var("a"), Formula.not(Formula.var("b")));
+        assertTrue(CnfEncoder.prefersDistributive(formula));
+        try (Atoms.Scope scope = new Atoms.Scope()) {
+            assertEquals(formula.toCNF().toClauses(), formula.toClauses(CnfMode.AUTO, scope));
+        }
+    }
+
+    // связки всех видов, в том числе ↔ и вложенные отрицания
+    private static Formula randomFormula(Random random, int depth) {
+        if (depth == 0 || random.nextInt(5) == 0) {
+            Formula var = Formula.var(VARIABLES[random.nextInt(VARIABLES.length)]);
+            return random.nextBoolean() ? var : Formula.not(var);
+        }
+        Formula left = randomFormula(random, depth - 1);
+        Formula right = randomFormula(random, depth - 1);
+        Formula formula = switch (random.nextInt(5)) {
+            case 0 -> Formula.and(left, right);
+            case 1 -> Formula.or(left, right);
+            case 2 -> Formula.impl(left, right);
+            case 3 -> Formula.equiv(left, right);
+            default -> Formula.not(Formula.not(Formula.or(left, right)));
+        };
+        return random.nextInt(4) == 0 ? Formula.not(formula) : formula;
+    }
+
+    private static boolean evaluate(Formula f, Map<String, Boolean> assignment) {
+        return switch (f.kind) {
+            case VAR -> assignment.get(f.var);
+            case NOT -> !evaluate(f.left, assignment);
+            case AND -> evaluate(f.left, assignment) && evaluate(f.right, assignment);
+            case OR -> evaluate(f.left, assignment) || evaluate(f.right, assignment);
+            case IMPL -> !evaluate(f.left, assignment) || evaluate(f.right, assignment);
+            case EQUIV -> evaluate(f.left, assignment) == evaluate(f.right, assignment);
+        };
+    }
+
+    private static boolean satisfiable(List<Clause> clauses) {
+        return new CdclSolver(clauses).solve();
+    }
+}
@@ -0,0 +1,95 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsultationCacheTest {
+    private static final Set<String> GOALS = Set.of("класс");
+
+    @Test
+    void inputsOfOneClassShareEntry() {
+        ProductionSystem system = budgetSystem();
+        ConsultationCache cache = system.enableConsultationCache(16, 1000);
+
+        ConsultationResult first = system.consult(Map.of("бюджет", 150000), GOALS);
+        ConsultationResult second = system.consult(Map.of("бюджет", 160000), GOALS);
+        ConsultationResult cheap = system.consult(Map.of("бюджет", 50000), GOALS);
+
+        assertEquals(Map.of("бюджет", 150000, "класс", "высокий"), first.workingMemory());
+        assertEquals(Map.of("бюджет", 160000, "класс", "высокий"), second.workingMemory());
+        assertEquals(Map.of("бюджет", 50000, "класс", "начальный"), cheap.workingMemory());
+        assertTrue(second.goalsReached());
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void hitMatchesUncachedConsultation() {
+        ProductionSystem cached = budgetSystem();
+        cached.enableConsultationCache(16, 1000);
+        ProductionSystem plain = budgetSystem();
+        for (int budget : new int[]{150000, 99999, 100000, 160000, 50000, 120000}) {
+            Map<String, Object> facts = Map.of("бюджет", budget);
+            assertEquals(plain.consult(facts, GOALS), cached.consult(facts, GOALS), "бюджет " + budget);
+        }
+    }
+
+    @Test
+    void randomStrategyBypassesCache() {
+        ProductionSystem system = budgetSystem();
+        ConsultationCache cache = system.enableConsultationCache(16, 1000);
+        system.setStrategy(ConflictResolutionStrategy.RANDOM);
+
+        system.consult(Map.of("бюджет", 150000), GOALS);
+        system.consult(Map.of("бюджет", 150000), GOALS);
+
+        assertEquals(2, cache.bypasses());
+        assertEquals(0, cache.hits() + cache.misses());
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void addRuleInvalidatesEntries() {
+        ProductionSystem system = budgetSystem();
+        ConsultationCache cache = system.enableConsultationCache(16, 1000);
+        system.consult(Map.of("бюджет", 150000), GOALS);
+
+        system.addRule(new Rule("премиум", List.of(new Condition("бюджет", ">=", 140000)),
+                List.of(new Action("класс", "премиум")), 10));
+        assertEquals(0, cache.size());
+
+        ConsultationResult result = system.consult(Map.of("бюджет", 150000), GOALS);
+        assertEquals("премиум", result.workingMemory().get("класс"));
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void leastRecentlyUsedEntryIsEvicted() {
+        ProductionSystem system = budgetSystem();
+        ConsultationCache cache = system.enableConsultationCache(1, 1000);
+        system.consult(Map.of("бюджет", 150000), GOALS);
+        system.consult(Map.of("бюджет", 50000), GOALS);
+        system.consult(Map.of("бюджет", 150000), GOALS);
+
+        assertEquals(2, cache.evictions());
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.size());
+    }
+
+    private static ProductionSystem budgetSystem() {
+        ProductionSystem system = new ProductionSystem();
+        system.setStrategy(ConflictResolutionStrategy.HIGHEST_PRIORITY);
+        system.addRule(new Rule("высокий", List.of(new Condition("бюджет", ">=", 100000)),
+                List.of(new Action("класс", "высокий")), 1));
+        system.addRule(new Rule("начальный", List.of(new Condition("бюджет", "<", 100000)),
+                List.of(new Action("класс", "начальный")), 1));
+        return system;
+    }
+}
@@ -0,0 +1,40 @@
+package ru.lab;
+
+import java.util.*;
+
+// Входы CPU-консультанта из ProductionSystemLab: все сочетания значений фактов,
+// включая отсутствие факта и значения на границах бюджетных условий правил.
+final class CpuAdvisorCorpus {
+    private static final Object ABSENT = new Object();
+
+    private CpuAdvisorCorpus() {}
+
+    static List<Map<String, Object>> inputs() {
+        Map<String, Object[]> domains = new LinkedHashMap<>();
+        domains.put("тип_задачи", new Object[]{"игры", "работа", "офис", ABSENT});
+        domains.put("бюджет_руб", new Object[]{10000, 15000, 25000, 30000, 39999, 40000, 45000.5,
+                50000, 60000, 60001, 100000, 200000L, ABSENT});
+        domains.put("требуемая_производительность", new Object[]{"высокая", "средняя", "минимальная", ABSENT});
+        domains.put("интегрированная_графика_нужна", new Object[]{true, false});
+        domains.put("энергоэффективность_важна", new Object[]{true, false});
+        domains.put("потребность_многопоточность", new Object[]{true, false, ABSENT});
+        domains.put("совместимость_сокет", new Object[]{"AM5", "LGA1700", ABSENT});
+
+        List<Map<String, Object>> inputs = new ArrayList<>();
+        inputs.add(new HashMap<>());
+        for (Map.Entry<String, Object[]> domain : domains.entrySet()) {
+            List<Map<String, Object>> extended = new ArrayList<>();
+            for (Map<String, Object> facts : inputs) {
+                for (Object value : domain.getValue()) {
+                    Map<String, Object> copy = new HashMap<>(facts);
+                    if (value != ABSENT) {
+                        copy.put(domain.getKey(), value);
+                    }
+                    extended.add(copy);
+                }
+            }
+            inputs = extended;
+        }
+        return inputs;
+    }
+}
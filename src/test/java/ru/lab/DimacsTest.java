@@ -0,0 +1,53 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DimacsTest {
+
+    @Test
+    void variablesDoNotCollideWithInternedAtoms() throws IOException {
+        int userAtom = Atoms.intern("1");
+        try (Atoms.Scope scope = new Atoms.Scope()) {
+            List<Clause> clauses = read("p cnf 2 2\n1 -2 0\n-1 0\n", scope);
+            assertEquals("[[1, ¬2], [¬1]]", clauses.toString());
+            for (Clause clause : clauses) {
+                for (int literal : clause.literals) {
+                    assertNotEquals(userAtom, Clause.atom(literal));
+                }
+            }
+        }
+    }
+
+    @Test
+    void roundTripKeepsNames() throws IOException {
+        List<Clause> clauses = SatCorpus.pigeonhole(2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Dimacs.write(clauses, out);
+        try (Atoms.Scope scope = new Atoms.Scope()) {
+            assertEquals(clauses.toString(), read(out.toString(StandardCharsets.UTF_8), scope).toString());
+        }
+    }
+
+    @Test
+    void rejectsNamesWithWhitespace() {
+        List<Clause> clauses = List.of(Clause.of(Clause.literal(Atoms.intern("тип задачи"), false)));
+        assertThrows(IllegalArgumentException.class, () -> Dimacs.write(clauses, new ByteArrayOutputStream()));
+    }
+
+    private static List<Clause> read(String text, Atoms.Scope scope) throws IOException {
+        List<Clause> clauses = new ArrayList<>();
+        Dimacs.read(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), scope, clauses::add);
+        return clauses;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscriminationTreeTest {
+
+    @Test
+    void agreesWithForwardChainingOnCpuAdvisor() {
+        ProductionSystem system = new ProductionSystem();
+        ProductionSystemLab.loadCPURules(system);
+        KnowledgeBase knowledgeBase = system.compile();
+        List<Map<String, Object>> corpus = CpuAdvisorCorpus.inputs();
+
+        List<Set<String>> goalSets = List.of(Set.of("рекомендация_cpu", "бюджет_подходящий"),
+                Set.of("рекомендация_cpu"), Set.of());
+        ConflictResolutionStrategy[] strategies = {ConflictResolutionStrategy.FIRST_MATCH,
+                ConflictResolutionStrategy.HIGHEST_PRIORITY, ConflictResolutionStrategy.MOST_SPECIFIC,
+                ConflictResolutionStrategy.SALIENCE_SPECIFICITY};
+        for (Set<String> goals : goalSets) {
+            for (ConflictResolutionStrategy strategy : strategies) {
+                DiscriminationTree tree = DiscriminationTree.compile(knowledgeBase, strategy, goals);
+                assertEquals(List.of(), tree.mismatches(corpus), strategy + " " + goals);
+            }
+        }
+    }
+
+    @Test
+    void rejectsOrderDependentStrategies() {
+        KnowledgeBase knowledgeBase = new KnowledgeBase(List.of());
+        assertThrows(IllegalArgumentException.class,
+                () -> DiscriminationTree.compile(knowledgeBase, ConflictResolutionStrategy.RECENCY, Set.of()));
+    }
+}
@@ -0,0 +1,102 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+import ru.lab.ResolutionMethod.Engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GivenClauseProverTest {
+
+    @Test
+    void agreesWithResolution() {
+        List<String> mismatches = new ArrayList<>();
+        for (SatCorpus.Problem problem : SatCorpus.problems()) {
+            boolean unsatisfiable = ResolutionMethod.resolution(problem.clauses());
+            GivenClauseProver prover = new GivenClauseProver();
+            boolean refuted = prover.refute(List.of(), problem.clauses());
+            if (refuted != unsatisfiable) {
+                mismatches.add(problem + ": resolution " + (unsatisfiable ? "невыполнимо" : "выполнимо"));
+            } else if (!refuted && !saturated(prover.activeClauses())) {
+                mismatches.add(problem + ": активные дизъюнкты не насыщены");
+            }
+        }
+        assertEquals(List.of(), mismatches);
+    }
+
+    // первая половина дизъюнктов - аксиомы, вторая - отрицание заключения
+    @Test
+    void setOfSupportAgreesWithCdclOnConsistentAxioms() {
+        List<String> mismatches = new ArrayList<>();
+        int checked = 0;
+        for (SatCorpus.Problem problem : SatCorpus.problems()) {
+            List<Clause> clauses = problem.clauses();
+            List<Clause> axioms = clauses.subList(0, clauses.size() / 2);
+            List<Clause> negatedGoal = clauses.subList(clauses.size() / 2, clauses.size());
+            if (ResolutionMethod.unsatisfiable(axioms, Engine.CDCL)) continue;
+            checked++;
+            boolean expected = ResolutionMethod.refute(axioms, negatedGoal, Engine.CDCL);
+            if (ResolutionMethod.refute(axioms, negatedGoal, Engine.GIVEN_CLAUSE_SOS) != expected) {
+                mismatches.add(problem + ": CDCL " + (expected ? "выводится" : "не выводится"));
+            }
+        }
+        assertTrue(checked > 100);
+        assertEquals(List.of(), mismatches);
+    }
+
+    // P ∧ ¬P ⊢ Q: противоречие целиком в аксиомах, а их set-of-support не резолвирует
+    @Test
+    void setOfSupportMissesInconsistentAxioms() {
+        int p = Atoms.intern("P");
+        int q = Atoms.intern("Q");
+        List<Clause> axioms = List.of(Clause.of(Clause.literal(p, false)), Clause.of(Clause.literal(p, true)));
+        List<Clause> negatedGoal = List.of(Clause.of(Clause.literal(q, true)));
+        assertTrue(ResolutionMethod.refute(axioms, negatedGoal, Engine.GIVEN_CLAUSE));
+        assertFalse(ResolutionMethod.refute(axioms, negatedGoal, Engine.GIVEN_CLAUSE_SOS));
+    }
+
+    @Test
+    void subsumedClausesLeaveActiveSet() {
+        int p = Atoms.intern("P");
+        int q = Atoms.intern("Q");
+        int r = Atoms.intern("R");
+        Clause pq = Clause.of(Clause.literal(p, false), Clause.literal(q, false));
+        Clause unit = Clause.of(Clause.literal(p, false));
+        Clause goal = Clause.of(Clause.literal(r, false));
+
+        // с set-of-support аксиомы активны сразу: P удаляет уже активный P ∨ Q
+        GivenClauseProver backward = new GivenClauseProver(true);
+        assertFalse(backward.refute(List.of(pq, unit), List.of(goal)));
+        assertEquals(Set.of(unit, goal), Set.copyOf(backward.activeClauses()));
+
+        // без него первым выбирается более короткий P, и P ∨ Q отбрасывается при выборе
+        GivenClauseProver forward = new GivenClauseProver();
+        assertFalse(forward.refute(List.of(pq, unit), List.of(goal)));
+        assertEquals(Set.of(unit, goal), Set.copyOf(forward.activeClauses()));
+    }
+
+    // каждая резольвента активных дизъюнктов - тавтология или поглощена активным
+    private static boolean saturated(List<Clause> active) {
+        for (Clause a : active) {
+            for (Clause b : active) {
+                for (int literal : a.literals) {
+                    if (!b.contains(literal ^ 1)) continue;
+                    Clause resolvent = a.resolve(b, literal);
+                    if (resolvent.isEmpty()) return false;
+                    if (resolvent.isTautology()) continue;
+                    boolean subsumed = false;
+                    for (Clause c : active) {
+                        subsumed |= c.subsumes(resolvent);
+                    }
+                    if (!subsumed) return false;
+                }
+            }
+        }
+        return true;
+    }
+}
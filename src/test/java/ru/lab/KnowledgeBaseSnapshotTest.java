@@ -0,0 +1,57 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KnowledgeBaseSnapshotTest {
+
+    @Test
+    void snapshotRestoresRulesAndIndexes(@TempDir Path directory) throws IOException {
+        KnowledgeBase knowledgeBase = new KnowledgeBase(RuleFileTest.sampleRules());
+        Path file = directory.resolve("rules.snapshot");
+        KnowledgeBaseSnapshot.write(knowledgeBase, file);
+        KnowledgeBase restored = KnowledgeBaseSnapshot.read(file);
+
+        assertEquals(RuleFileTest.describe(knowledgeBase.rules()), RuleFileTest.describe(restored.rules()));
+        assertEquals(knowledgeBase.facts().size(), restored.facts().size());
+        for (int f = 0; f < knowledgeBase.facts().size(); f++) {
+            assertEquals(knowledgeBase.facts().name(f), restored.facts().name(f));
+            assertArrayEquals(knowledgeBase.producerIds(f), restored.producerIds(f));
+            assertArrayEquals(knowledgeBase.readers(f), restored.readers(f));
+        }
+        for (int r = 0; r < knowledgeBase.compiledRules().size(); r++) {
+            assertArrayEquals(knowledgeBase.compiledRules().get(r).conditionFacts,
+                    restored.compiledRules().get(r).conditionFacts);
+            assertArrayEquals(knowledgeBase.compiledRules().get(r).actionFacts,
+                    restored.compiledRules().get(r).actionFacts);
+        }
+
+        Map<String, Object> facts = Map.of("тип_задачи", "игры", "бюджет_руб", 45000,
+                "требуемая_производительность", "высокая", "интегрированная_графика_нужна", false,
+                "энергоэффективность_важна", false);
+        Set<String> goals = Set.of("рекомендация_cpu");
+        assertEquals(consult(knowledgeBase, facts, goals), consult(restored, facts, goals));
+    }
+
+    @Test
+    void rejectsForeignFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("rules.snapshot");
+        Files.writeString(file, "rule \"r\"\nend\n");
+        assertThrows(IOException.class, () -> KnowledgeBaseSnapshot.read(file));
+    }
+
+    private static Map<String, Object> consult(KnowledgeBase knowledgeBase, Map<String, Object> facts, Set<String> goals) {
+        Session session = knowledgeBase.newSession();
+        facts.forEach(session::setFact);
+        session.forwardChaining(goals);
+        return session.getWorkingMemory();
+    }
+}
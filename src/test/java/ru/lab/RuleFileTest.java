@@ -0,0 +1,81 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RuleFileTest {
+
+    // правила CPU-консультанта и правило со всеми видами значений
+    static List<Rule> sampleRules() {
+        ProductionSystem system = new ProductionSystem();
+        ProductionSystemLab.loadCPURules(system);
+        List<Rule> rules = new ArrayList<>(system.compile().rules());
+        rules.add(new Rule("Строка \"в кавычках\"\nи\tтабуляция", List.of(
+                new Condition("факт_1", "in", List.of(1, "a", 2.5)),
+                new Condition("большое", ">", 3_000_000_000L),
+                new Condition("флаг", "exists", null),
+                new Condition("текст", "startsWith", "пре\\фикс")),
+                List.of(new Action("итог", null), new Action("доля", -0.25), new Action("готово", true)), -3));
+        return rules;
+    }
+
+    static String describe(List<Rule> rules) {
+        StringBuilder text = new StringBuilder();
+        for (Rule rule : rules) {
+            text.append(rule.name).append(" / ").append(rule.priority).append('\n');
+            for (Condition cond : rule.conditions) {
+                text.append("  ").append(cond.factName).append(' ').append(Operator.fromSymbol(cond.operator))
+                        .append(' ').append(describe(cond.expectedValue)).append('\n');
+            }
+            for (Action action : rule.actions) {
+                text.append("  => ").append(action.factName).append(' ').append(describe(action.value)).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static String describe(Object value) {
+        if (value instanceof List<?> list) {
+            return list.stream().map(RuleFileTest::describe).toList().toString();
+        }
+        return value == null ? "null" : value.getClass().getSimpleName() + ":" + value;
+    }
+
+    @Test
+    void writtenRulesParseBack() throws IOException {
+        List<Rule> rules = sampleRules();
+        StringWriter out = new StringWriter();
+        RuleFileWriter.write(rules, out);
+
+        List<Rule> parsed = new ArrayList<>();
+        new RuleFileParser(parsed::add).parse(new StringReader(out.toString()));
+        assertEquals(describe(rules), describe(parsed));
+    }
+
+    @Test
+    void rejectsUnreadableFactNames() {
+        for (String name : List.of("a b", "c-d", "e.f", "")) {
+            List<Rule> rules = List.of(new Rule("r", List.of(new Condition(name, "=", 1)),
+                    List.of(new Action("x", 1)), 0));
+            assertThrows(IllegalArgumentException.class, () -> RuleFileWriter.write(rules, new StringWriter()), name);
+
+            List<Rule> actions = List.of(new Rule("r", List.of(), List.of(new Action(name, 1)), 0));
+            assertThrows(IllegalArgumentException.class, () -> RuleFileWriter.write(actions, new StringWriter()), name);
+        }
+    }
+
+    @Test
+    void rejectsNonFiniteValues() {
+        for (double value : new double[]{Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY}) {
+            List<Rule> rules = List.of(new Rule("r", List.of(), List.of(new Action("x", value)), 0));
+            assertThrows(IllegalArgumentException.class, () -> RuleFileWriter.write(rules, new StringWriter()));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package ru.lab;
+
+import ru.lab.ResolutionMethod.Atoms;
+import ru.lab.ResolutionMethod.Clause;
+
+import java.util.*;
+
+// Наборы дизъюнктов для сверки движков вывода с resolution(). Размеры подобраны
+// так, чтобы попарная резолюция укладывалась в доли секунды на задачу.
+final class SatCorpus {
+    private SatCorpus() {}
+
+    record Problem(String name, List<Clause> clauses) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static List<Problem> problems() {
+        List<Problem> problems = new ArrayList<>();
+        problems.add(new Problem("пусто", List.of()));
+        problems.add(new Problem("пустой дизъюнкт", List.of(clause())));
+        problems.add(new Problem("p, ¬p", List.of(clause("p"), clause("¬p"))));
+        problems.add(new Problem("тавтология", List.of(clause("p", "¬p"))));
+        problems.add(new Problem("цепочка", chain(12, false)));
+        problems.add(new Problem("цепочка с отрицанием", chain(12, true)));
+        for (int holes = 1; holes <= 2; holes++) {
+            problems.add(new Problem("PHP(" + (holes + 1) + "," + holes + ")", pigeonhole(holes)));
+        }
+        double[] ratios = {2.0, 3.0, 4.26, 5.0, 6.0};
+        for (int variables = 3; variables <= 5; variables++) {
+            for (double ratio : ratios) {
+                for (long seed = 0; seed < 10; seed++) {
+                    problems.add(new Problem("3-КНФ n=" + variables + " r=" + ratio + " seed=" + seed,
+                            random3Cnf(seed, variables, ratio)));
+                }
+            }
+        }
+        return problems;
+    }
+
+    // p0, p0 → p1, ..., p(n-1) → pn и, при negated, ¬pn
+    static List<Clause> chain(int length, boolean negated) {
+        List<Clause> clauses = new ArrayList<>();
+        clauses.add(clause("c0"));
+        for (int i = 0; i < length; i++) {
+            clauses.add(clause("¬c" + i, "c" + (i + 1)));
+        }
+        if (negated) {
+            clauses.add(clause("¬c" + length));
+        }
+        return clauses;
+    }
+
+    // holes + 1 голубей в holes клетках: невыполнимо
+    static List<Clause> pigeonhole(int holes) {
+        List<Clause> clauses = new ArrayList<>();
+        for (int i = 0; i <= holes; i++) {
+            String[] literals = new String[holes];
+            for (int j = 0; j < holes; j++) {
+                literals[j] = "p" + i + "_" + j;
+            }
+            clauses.add(clause(literals));
+        }
+        for (int j = 0; j < holes; j++) {
+            for (int i = 0; i <= holes; i++) {
+                for (int k = i + 1; k <= holes; k++) {
+                    clauses.add(clause("¬p" + i + "_" + j, "¬p" + k + "_" + j));
+                }
+            }
+        }
+        return clauses;
+    }
+
+    // round(ratio * variables) дизъюнктов из трёх разных переменных со случайными знаками
+    static List<Clause> random3Cnf(long seed, int variables, double ratio) {
+        Random random = new Random(seed);
+        int count = (int) Math.round(ratio * variables);
+        List<Clause> clauses = new ArrayList<>(count);
+        for (int c = 0; c < count; c++) {
+            int[] literals = new int[3];
+            for (int k = 0; k < 3; k++) {
+                int variable;
+                boolean repeated;
+                do {
+                    variable = random.nextInt(variables);
+                    repeated = false;
+                    for (int m = 0; m < k; m++) {
+                        repeated |= Clause.atom(literals[m]) == Atoms.intern("x" + variable);
+                    }
+                } while (repeated);
+                literals[k] = Clause.literal(Atoms.intern("x" + variable), random.nextBoolean());
+            }
+            clauses.add(Clause.of(literals));
+        }
+        return clauses;
+    }
+
+    private static Clause clause(String... literals) {
+        int[] encoded = new int[literals.length];
+        for (int i = 0; i < literals.length; i++) {
+            boolean negative = literals[i].startsWith("¬");
+            encoded[i] = Clause.literal(Atoms.intern(negative ? literals[i].substring(1) : literals[i]), negative);
+        }
+        return Clause.of(encoded);
+    }
+}
@@ -0,0 +1,100 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamingSessionTest {
+
+    @Test
+    void expiredFactTakesDerivedFactsWithIt() {
+        StreamingSession stream = overheatSystem().streamingSession(16, 16, 1000);
+        assertTrue(stream.offer("температура", 90, 0));
+        assertEquals(1, stream.processPending());
+        assertEquals(true, stream.getFact("перегрев"));
+
+        stream.advanceTo(999);
+        assertEquals(true, stream.getFact("перегрев"));
+
+        stream.advanceTo(1000);
+        assertEquals(Map.of(), stream.getWorkingMemory());
+    }
+
+    @Test
+    void newerValueExtendsLifetime() {
+        StreamingSession stream = overheatSystem().streamingSession(16, 16, 1000);
+        stream.offer("температура", 90, 0);
+        stream.processPending();
+        stream.offer("температура", 95, 800);
+        stream.processPending();
+
+        stream.advanceTo(1000);
+        assertEquals(95, stream.getFact("температура"));
+        assertEquals(true, stream.getFact("перегрев"));
+
+        stream.advanceTo(1800);
+        assertNull(stream.getFact("температура"));
+        assertNull(stream.getFact("перегрев"));
+    }
+
+    @Test
+    void factWithoutTimeToLiveNeverExpires() {
+        StreamingSession stream = overheatSystem().streamingSession(16, 16, 1000);
+        stream.setTimeToLive("температура", 0);
+        stream.offer("температура", 90, 0);
+        stream.processPending();
+
+        stream.advanceTo(Long.MAX_VALUE);
+        assertEquals(true, stream.getFact("перегрев"));
+    }
+
+    @Test
+    void lateFactsAreDropped() {
+        StreamingSession stream = overheatSystem().streamingSession(16, 16, 1000);
+        stream.offer("температура", 90, 2000);
+        stream.processPending();
+
+        // старше текущего значения
+        stream.offer("температура", 50, 1500);
+        assertEquals(1, stream.processPending());
+        assertEquals(90, stream.getFact("температура"));
+
+        // истёк ещё до поступления
+        stream.advanceTo(5000);
+        stream.offer("температура", 95, 3000);
+        stream.processPending();
+        assertNull(stream.getFact("температура"));
+        assertNull(stream.getFact("перегрев"));
+        assertEquals(5000, stream.watermark());
+    }
+
+    @Test
+    void offerFailsWhenQueueIsFull() {
+        StreamingSession stream = overheatSystem().streamingSession(2, 1, 1000);
+        assertTrue(stream.offer("температура", 70, 0));
+        assertTrue(stream.offer("температура", 90, 1));
+        assertFalse(stream.offer("температура", 95, 2));
+
+        assertEquals(1, stream.processPending());
+        assertEquals(1, stream.queued());
+        assertEquals(70, stream.getFact("температура"));
+        assertNull(stream.getFact("перегрев"));
+
+        assertTrue(stream.offer("температура", 95, 2));
+        assertEquals(1, stream.processPending());
+        assertEquals(1, stream.processPending());
+        assertEquals(0, stream.processPending());
+        assertEquals(95, stream.getFact("температура"));
+        assertEquals(true, stream.getFact("перегрев"));
+    }
+
+    private static ProductionSystem overheatSystem() {
+        ProductionSystem system = new ProductionSystem();
+        system.addRule(new Rule("перегрев", List.of(new Condition("температура", ">", 80)),
+                List.of(new Action("перегрев", true)), 1));
+        return system;
+    }
+}
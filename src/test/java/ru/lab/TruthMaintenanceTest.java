@@ -0,0 +1,106 @@
+package ru.lab;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TruthMaintenanceTest {
+
+    @Test
+    void selfReadingRuleLosesUpstreamPremise() {
+        KnowledgeBase knowledgeBase = new KnowledgeBase(List.of(
+                rule("U", List.of(new Condition("p", "=", true)), "d3", 1),
+                rule("S", List.of(new Condition("d3", "<", 2)), "d3", 2)));
+        Session session = knowledgeBase.newSession();
+        session.setFact("p", true);
+        session.forwardChaining(null);
+        assertEquals(Map.of("p", true, "d3", 2), session.getWorkingMemory());
+
+        session.retractFact("p");
+        session.propagate(null);
+        assertEquals(Map.of(), session.getWorkingMemory());
+    }
+
+    @Test
+    void overwrittenExternalValueComesBack() {
+        KnowledgeBase knowledgeBase = new KnowledgeBase(List.of(
+                rule("R", List.of(new Condition("p", "=", true)), "x", 2)));
+        Session session = knowledgeBase.newSession();
+        session.setFact("x", 1);
+        session.setFact("p", true);
+        session.forwardChaining(null);
+        assertEquals(2, session.getFact("x"));
+
+        session.retractFact("p");
+        session.propagate(null);
+        assertEquals(Map.of("x", 1), session.getWorkingMemory());
+    }
+
+    @Test
+    void justificationsSurviveAddRule() {
+        ProductionSystem system = new ProductionSystem();
+        system.addRule(rule("R1", List.of(new Condition("a", "=", true)), "b", true));
+        system.setFact("a", true);
+        system.forwardChaining(null);
+        system.addRule(rule("R2", List.of(new Condition("x", "=", true)), "y", true));
+
+        system.retractFact("a");
+        system.propagate(null);
+        assertEquals(Map.of(), system.getWorkingMemory());
+    }
+
+    // Базы, где каждый факт пишет не больше одного правила, а перезапись идёт через
+    // правила, читающие свой же факт, и поверх заданных извне значений. На них
+    // отзыв факта и propagate должны давать то же, что вывод заново без этого факта.
+    @Test
+    void retractAndPropagateMatchFreshRun() {
+        Random random = new Random(7);
+        String[] operators = {"=", "!=", "<", ">=", "exists"};
+        List<String> mismatches = new ArrayList<>();
+        for (int trial = 0; trial < 3000; trial++) {
+            List<Rule> rules = new ArrayList<>();
+            for (int fact = 2; fact < 6; fact++) {
+                if (random.nextInt(4) == 0) continue;
+                List<Condition> conditions = new ArrayList<>();
+                for (int c = 0, n = 1 + random.nextInt(2); c < n; c++) {
+                    String operator = operators[random.nextInt(operators.length)];
+                    conditions.add(new Condition("f" + random.nextInt(6), operator,
+                            operator.equals("exists") ? null : random.nextInt(3)));
+                }
+                rules.add(rule("r" + fact, conditions, "f" + fact, random.nextInt(3)));
+            }
+            KnowledgeBase knowledgeBase = new KnowledgeBase(rules);
+            Map<String, Object> inputs = new TreeMap<>();
+            for (int fact = 0; fact < 4; fact++) {
+                if (random.nextInt(4) > 0) inputs.put("f" + fact, random.nextInt(3));
+            }
+            for (MatchingEngine engine : MatchingEngine.values()) {
+                for (String retracted : inputs.keySet()) {
+                    Session session = knowledgeBase.newSession();
+                    session.setMatchingEngine(engine);
+                    inputs.forEach(session::setFact);
+                    session.forwardChaining(null);
+                    session.retractFact(retracted);
+                    session.propagate(null);
+
+                    Session fresh = knowledgeBase.newSession();
+                    inputs.forEach((name, value) -> {
+                        if (!name.equals(retracted)) fresh.setFact(name, value);
+                    });
+                    fresh.forwardChaining(null);
+                    if (!session.getWorkingMemory().equals(fresh.getWorkingMemory())) {
+                        mismatches.add(trial + " " + engine + " -" + retracted + ": " + session.getWorkingMemory()
+                                + " != " + fresh.getWorkingMemory());
+                    }
+                }
+            }
+        }
+        assertEquals(List.of(), mismatches);
+    }
+
+    private static Rule rule(String name, List<Condition> conditions, String fact, Object value) {
+        return new Rule(name, conditions, List.of(new Action(fact, value)), 0);
+    }
+}